@@ -0,0 +1,139 @@
+package functionalsql;
+
+import customfunctionalsql.CustomFunctionalSQLCompiler;
+import functionalsql.metrics.CompilerMetrics;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput and average time of FunctionalSQLCompiler.parse on representative statement shapes.
+ *
+ * Run with 'gradle jmh', which also enables the gc profiler to report the allocation rate per benchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompilerBenchmark {
+
+    private static final String SINGLE_TABLE = "a";
+
+    private static final String DEEP_JOIN = "a join(b, leftjoin(c, join(d, leftjoin(e, join(f))))) leftjoin(g)";
+
+    private static final String NESTED_STATEMENTS = "a join(((b join(c)) filter(v, 1)), id, id) in(w, (((d)) filter(x, 'y')))";
+
+    private static final String OR_AND_TREE = "a or(and(filter(v, 1), filter(w, 2)), and(notfilter(v, 3), filter(w, >, 4)), " +
+            "or(filter(x, 'a', 'b'), filterdate(d, 20120101, 20130101)))";
+
+    private static final String REF_NEWTABLE = "a join(b, join(newtable(b))) join(newtable(a)) " +
+            "print(ref(a.v, 1), ref(a.v, 2), ref(b.w, 1), ref(b.w, 2))";
+
+    private static final String CUSTOM = "a join(b) id(b, 10) id(20)";
+
+    private FunctionalSQLCompiler compiler;
+
+    private CustomFunctionalSQLCompiler customCompiler;
+
+    private FunctionalSQLCompiler measuredCompiler;
+
+    private String largeFilter, largeIn, deepNesting;
+
+    @Setup
+    public void setup() throws Exception {
+        compiler = new FunctionalSQLCompiler();
+        customCompiler = new CustomFunctionalSQLCompiler();
+
+        measuredCompiler = new FunctionalSQLCompiler();
+        measuredCompiler.setMetricsListener(new CompilerMetrics());
+
+        for (FunctionalSQLCompiler c : new FunctionalSQLCompiler[] { compiler, customCompiler, measuredCompiler }) {
+            c.addRelation("a", "id", "a", "id");
+            c.addDefaultRelation("id", "id");
+        }
+
+        largeFilter = valueList("a filter(v", 1000);
+        largeIn = valueList("a in(v, b filter(w", 1000) + ")";
+        deepNesting = nestedJoins(10000);
+    }
+
+    /* a join(b1, join(b2, ... join(bN)...))
+    */
+    static String nestedJoins(int depth) {
+        StringBuilder statement = new StringBuilder("a");
+
+        for (int idx = 1; idx <= depth; idx++) {
+            statement.append(" join(b").append(idx).append(idx < depth ? "," : "");
+        }
+
+        for (int idx = 1; idx <= depth; idx++) {
+            statement.append(')');
+        }
+
+        return statement.toString();
+    }
+
+    static String valueList(String prefix, int values) {
+        StringBuilder statement = new StringBuilder(prefix);
+
+        for (int idx = 0; idx < values; idx++) {
+            statement.append(", ").append(idx);
+        }
+
+        return statement.append(')').toString();
+    }
+
+    @Benchmark
+    public String singleTable() throws Exception {
+        return compiler.parse(SINGLE_TABLE);
+    }
+
+    @Benchmark
+    public String deepJoin() throws Exception {
+        return compiler.parse(DEEP_JOIN);
+    }
+
+    /* Same as deepJoin, with metrics enabled.
+    */
+    @Benchmark
+    public String deepJoinWithMetrics() throws Exception {
+        return measuredCompiler.parse(DEEP_JOIN);
+    }
+
+    @Benchmark
+    public String nestedStatements() throws Exception {
+        return compiler.parse(NESTED_STATEMENTS);
+    }
+
+    @Benchmark
+    public String orAndTree() throws Exception {
+        return compiler.parse(OR_AND_TREE);
+    }
+
+    @Benchmark
+    public String largeFilter() throws Exception {
+        return compiler.parse(largeFilter);
+    }
+
+    @Benchmark
+    public String largeIn() throws Exception {
+        return compiler.parse(largeIn);
+    }
+
+    @Benchmark
+    public String deepNesting() throws Exception {
+        return compiler.parse(deepNesting);
+    }
+
+    @Benchmark
+    public String refAndNewTable() throws Exception {
+        return compiler.parse(REF_NEWTABLE);
+    }
+
+    @Benchmark
+    public String customCompiler() throws Exception {
+        return customCompiler.parse(CUSTOM);
+    }
+}
@@ -0,0 +1,48 @@
+package functionalsql;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compile time of filters with large value lists, per value list strategy.
+ *
+ * Run with 'gradle jmh -Pjmh.include=ValueListBenchmark'.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValueListBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int values;
+
+    @Param({"IN_LIST", "CHUNKED_IN", "VALUES"})
+    private ValueListStrategy strategy;
+
+    private FunctionalSQLCompiler compiler;
+
+    private String filter, notFilter;
+
+    @Setup
+    public void setup() throws Exception {
+        compiler = new FunctionalSQLCompiler();
+        compiler.setValueListStrategy(strategy, 1000);
+
+        filter = CompilerBenchmark.valueList("a filter(v", values);
+        notFilter = CompilerBenchmark.valueList("a notfilter(v", values);
+    }
+
+    @Benchmark
+    public String filter() throws Exception {
+        return compiler.parse(filter);
+    }
+
+    @Benchmark
+    public String notFilter() throws Exception {
+        return compiler.parse(notFilter);
+    }
+}
@@ -6,6 +6,6 @@ public class CustomFunctionalSQLCompiler extends FunctionalSQLCompiler {
     public static final String ERR_ARGUMENT_SHOULD_BE_NUMMERICAL = "Argument (%s) should be nummerical.";
 
     public CustomFunctionalSQLCompiler() {
-        super.addCustomFunction("id", Id.class);
+        super.addCustomFunction("id", Id::new);
     }
 }
@@ -1,7 +1,8 @@
 package customfunctionalsql;
 
 import functionalsql.Function;
-import functionalsql.consumer.TableOrColumnConsumer;
+import functionalsql.ast.Comparison;
+import functionalsql.consumer.ArgumentSchema;
 import functionalsql.consumer.TokenConsumer;
 
 import static customfunctionalsql.CustomFunctionalSQLCompiler.ERR_ARGUMENT_SHOULD_BE_NUMMERICAL;
@@ -16,36 +17,41 @@ import static functionalsql.FunctionalSQLCompiler.ERR_REFERING_TO_A_NON_EXISTING
  *
  * id(value)
  * id(table, value)
+ *
+ * The value can be a placeholder, e.g. id(?) or id(table, :id).
  */
 public class Id extends Function {
 
     private String value1, value2;
 
-    public Id() {
-        build(new TableOrColumnConsumer(this, token -> value1 = token).singleValue());
-        build(new TokenConsumer(this, token -> value2 = token).singleValue());
+    @Override
+    protected void buildArguments(ArgumentSchema.Builder arguments) {
+        arguments.build(new TokenConsumer<Id>((id, token) -> id.value1 = token).singleValue());
+        arguments.build(new TokenConsumer<Id>((id, token) -> id.value2 = token).singleValue());
     }
 
     @Override
     public void execute() throws Exception {
-        try {
-            Integer.parseInt(value2 == null ? value1 : value2);
-        } catch(NumberFormatException e) {
-            getCompiler().syntaxError(ERR_ARGUMENT_SHOULD_BE_NUMMERICAL, value2 == null ? value1 : value2);
+        String value = value2 == null ? value1 : value2;
+
+        if (!getContext().isParameter(value)) {
+            try {
+                Integer.parseInt(value);
+            } catch(NumberFormatException e) {
+                getContext().syntaxError(ERR_ARGUMENT_SHOULD_BE_NUMMERICAL, value);
+            }
         }
 
         if(value2 != null) {
-            if(!getCompiler().getStatement().isTable(value1)) {
-                getCompiler().syntaxError(ERR_REFERING_TO_A_NON_EXISTING_TABLE, value1);
+            if(!getContext().getStatement().isTable(value1)) {
+                getContext().syntaxError(ERR_REFERING_TO_A_NON_EXISTING_TABLE, value1);
             }
 
-            value1 = getCompiler().getStatement().getAlias(value1);
+            value1 = getContext().getStatement().getAlias(value1);
         }
 
         String column = value2 != null ? (value1 + ".id") : "id";
 
-        String filterClause = String.format("%s = %s", column, value2 != null ? value2 : value1);
-
-        getCompiler().getStatement().addFilterClause(filterClause);
+        getContext().getStatement().addFilterClause(new Comparison(column, "=", getContext().toValue(value)));
     }
 }
\ No newline at end of file
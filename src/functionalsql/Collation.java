@@ -0,0 +1,14 @@
+package functionalsql;
+
+/**
+ * Collation of the columns of like filters, used by the sargable rewrite of like (see
+ * FunctionalSQLCompiler.setSargableLike).
+ *
+ *   BINARY     -> strings are compared on their characters without padding, so 'abc%' matches the range of 'abc' up
+ *                 to 'abd': like(v, 'abc%') -> v >= 'abc' AND v < 'abd' and like(v, 'abc') -> v = 'abc'
+ *   LINGUISTIC -> any other collation: the LIKE is kept and combined with the equality or the lower bound:
+ *                 like(v, 'abc%') -> v >= 'abc' AND v LIKE 'abc%'
+ */
+public enum Collation {
+    BINARY, LINGUISTIC
+}
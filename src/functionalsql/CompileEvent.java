@@ -0,0 +1,43 @@
+package functionalsql;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of a compilation (parse, compile or compileTemplate). The event lasts from the start of the
+ * call until the SQL (or query) is ready.
+ */
+@Name("functionalsql.Compile")
+@Label("FS Compile")
+@Category("FunctionalSQL")
+@StackTrace(false)
+final class CompileEvent extends Event {
+    @Label("Statement Hash")
+    @Description("Hash code of the FS statement")
+    int statementHash;
+
+    @Label("Statement Length")
+    int statementLength;
+
+    @Label("Tokens")
+    int tokens;
+
+    @Label("Nesting Depth")
+    int nestingDepth;
+
+    @Label("Relations Resolved")
+    int relationsResolved;
+
+    @Label("Relations Not Found")
+    int relationsNotFound;
+
+    @Label("Cache Hit")
+    boolean cacheHit;
+
+    @Label("Failed")
+    boolean failed;
+}
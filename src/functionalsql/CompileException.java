@@ -0,0 +1,77 @@
+package functionalsql;
+
+import java.util.Arrays;
+
+/**
+ * Error in an FS statement.
+ *
+ * The exception carries the error (one of the ERR_ formats of the compiler), its arguments and the position in the
+ * statement. Compile errors are expected input errors, so no stack trace is captured and the message, which shows
+ * the statement with an indicator at the position of the error, is only formatted when it is requested.
+ */
+public class CompileException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    private final String error;
+    private final Object[] arguments;
+    private final String statement;
+    private final int offset;
+
+    private String message;
+
+    public CompileException(String error, Object[] arguments, String statement, int offset) {
+        super(null, null, false, false);
+        this.error = error;
+        this.arguments = arguments;
+        this.statement = statement;
+        this.offset = offset;
+    }
+
+    /**
+     * The format of the error, e.g. FunctionalSQLCompiler.ERR_UNKNOWN_FUNCTION.
+     */
+    public String getError() {
+        return error;
+    }
+
+    public Object[] getArguments() {
+        return arguments.clone();
+    }
+
+    public String getStatement() {
+        return statement;
+    }
+
+    /**
+     * Position in the statement of the token which was consumed last when the error was found.
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * The error with its arguments, without the statement and the indicator.
+     */
+    public String getDescription() {
+        return String.format(error, arguments);
+    }
+
+    @Override
+    public String getMessage() {
+        if (message == null) {
+            char[] indicator = new char[offset + 1], arrowLine = new char[offset + 1];
+
+            Arrays.fill(indicator, ' ');
+            Arrays.fill(arrowLine, '-');
+            indicator[indicator.length - 1] = '|';
+
+            message = String.format("Syntax error: %s\n%s\n%s\n%s",
+                    getDescription(),
+                    statement,
+                    new String(indicator),
+                    new String(arrowLine));
+        }
+
+        return message;
+    }
+}
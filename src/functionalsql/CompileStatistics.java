@@ -0,0 +1,229 @@
+package functionalsql;
+
+import jdk.jfr.EventType;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Statistics of a single compilation: the time spent per phase, the executed functions, the relation lookups and the
+ * size of the statement and the SQL.
+ *
+ * The tokenize time is measured with one scan of the whole statement before it is parsed. Tokens are scanned again
+ * while the statement is parsed, so the tokenize time is excluded from the parse time. The same holds for the execute
+ * time of the functions.
+ */
+public final class CompileStatistics {
+    private final static EventType COMPILE_EVENT = EventType.getEventType(CompileEvent.class);
+    private final static EventType FUNCTION_EVENT = EventType.getEventType(FunctionEvent.class);
+
+    private final MetricsListener listener;
+
+    /* Flight recorder events, null if they are not enabled in a running recording.
+    */
+    private final CompileEvent compileEvent;
+
+    private final boolean functionEvents;
+
+    private final int statementLength, statementHash;
+
+    private int sqlLength = -1, tokens, nestingDepth, relationHits, relationMisses;
+
+    private long tokenizeNanos, parseNanos, executeNanos, renderNanos;
+
+    private boolean cacheHit, rendered, completed;
+
+    private final Map<String, Integer> functionCounts = new HashMap<>();
+
+    private CompileStatistics(MetricsListener listener, CompileEvent compileEvent, boolean functionEvents, String statement) {
+        this.listener = listener;
+        this.compileEvent = compileEvent;
+        this.functionEvents = functionEvents;
+        this.statementLength = statement.length();
+        this.statementHash = statement.hashCode();
+    }
+
+    /* Returns null if there is no metrics listener and no flight recording of the FS events, which is the test the
+    compiler uses to skip the instrumentation. Nothing is allocated in that case.
+    */
+    static CompileStatistics start(MetricsListener listener, String statement) {
+        boolean compileEvents = COMPILE_EVENT.isEnabled(), functionEvents = FUNCTION_EVENT.isEnabled();
+
+        if (listener == null && !compileEvents && !functionEvents) {
+            return null;
+        }
+
+        CompileEvent compileEvent = null;
+
+        if (compileEvents) {
+            compileEvent = new CompileEvent();
+            compileEvent.begin();
+        }
+
+        return new CompileStatistics(listener, compileEvent, functionEvents, statement);
+    }
+
+    /* Returns the started flight recorder event of a function execution, or null if the event is not enabled.
+    */
+    FunctionEvent beginFunction() {
+        if (!functionEvents) {
+            return null;
+        }
+
+        FunctionEvent event = new FunctionEvent();
+        event.begin();
+        return event;
+    }
+
+    void executed(String function, long nanos, FunctionEvent event) {
+        executeNanos += nanos;
+        functionCounts.merge(function, 1, Integer::sum);
+
+        if (event != null) {
+            event.end();
+
+            if (event.shouldCommit()) {
+                event.function = function;
+                event.statementHash = statementHash;
+                event.commit();
+            }
+        }
+    }
+
+    void relationLookup(boolean hit) {
+        if (hit) {
+            relationHits++;
+        } else {
+            relationMisses++;
+        }
+    }
+
+    void nested(int depth) {
+        nestingDepth = Math.max(nestingDepth, depth);
+    }
+
+    void parsed(long nanos, long tokenizeNanos, int tokens) {
+        this.tokenizeNanos = tokenizeNanos;
+        this.parseNanos = Math.max(0, nanos - tokenizeNanos - executeNanos);
+        this.tokens = tokens;
+    }
+
+    void rendered(long nanos, int sqlLength) {
+        this.renderNanos = nanos;
+        this.rendered = true;
+        this.sqlLength = sqlLength;
+    }
+
+    void cacheHit(int sqlLength) {
+        this.cacheHit = true;
+        this.sqlLength = sqlLength;
+    }
+
+    void completed() {
+        completed = true;
+    }
+
+    /* Commits the flight recorder event and passes the statistics to the listener. A compilation which did not complete
+    has failed.
+    */
+    void report() {
+        if (compileEvent != null) {
+            compileEvent.end();
+
+            if (compileEvent.shouldCommit()) {
+                compileEvent.statementHash = statementHash;
+                compileEvent.statementLength = statementLength;
+                compileEvent.tokens = tokens;
+                compileEvent.nestingDepth = nestingDepth;
+                compileEvent.relationsResolved = relationHits;
+                compileEvent.relationsNotFound = relationMisses;
+                compileEvent.cacheHit = cacheHit;
+                compileEvent.failed = !completed;
+                compileEvent.commit();
+            }
+        }
+
+        if (listener != null) {
+            listener.compiled(this);
+        }
+    }
+
+    /**
+     * Hash code of the statement text, to correlate statistics without keeping the statement.
+     */
+    public int getStatementHash() {
+        return statementHash;
+    }
+
+    public int getStatementLength() {
+        return statementLength;
+    }
+
+    /**
+     * Length of the SQL or -1 if it is not known (FunctionalSQLCompiler.compile and parse into an Appendable).
+     */
+    public int getSqlLength() {
+        return sqlLength;
+    }
+
+    public int getTokens() {
+        return tokens;
+    }
+
+    /**
+     * Maximum number of functions which were nested into each other.
+     */
+    public int getNestingDepth() {
+        return nestingDepth;
+    }
+
+    public int getRelationHits() {
+        return relationHits;
+    }
+
+    public int getRelationMisses() {
+        return relationMisses;
+    }
+
+    public long getTokenizeNanos() {
+        return tokenizeNanos;
+    }
+
+    public long getParseNanos() {
+        return parseNanos;
+    }
+
+    public long getExecuteNanos() {
+        return executeNanos;
+    }
+
+    public long getRenderNanos() {
+        return renderNanos;
+    }
+
+    /**
+     * Number of executions per FS function name.
+     */
+    public Map<String, Integer> getFunctionCounts() {
+        return Collections.unmodifiableMap(functionCounts);
+    }
+
+    /**
+     * True if the SQL was taken from the statement cache. The statement was then not compiled.
+     */
+    public boolean isCacheHit() {
+        return cacheHit;
+    }
+
+    /**
+     * True if SQL was rendered (not for FunctionalSQLCompiler.compile, which returns a query).
+     */
+    public boolean isRendered() {
+        return rendered;
+    }
+
+    public boolean isFailed() {
+        return !completed;
+    }
+}
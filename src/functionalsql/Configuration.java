@@ -0,0 +1,122 @@
+package functionalsql;
+
+import functionalsql.ast.Dialect;
+
+import java.util.*;
+
+/**
+ * Immutable snapshot of the compiler configuration (functions and relations).
+ *
+ * A snapshot is created by the compiler after the configuration has changed and is shared by all parse calls
+ * that start after that moment. Because it never changes, it can be read from any thread without locking.
+ */
+final class Configuration {
+    private final Map<String, FunctionDefinition> functions;
+
+    private final Map<Class<? extends Function>, String> functionNames = new HashMap<>();
+
+    private final RelationCatalog relations;
+
+    private final ValueListStrategy valueListStrategy;
+
+    private final int maximumListSize;
+
+    private final Dialect dialect;
+
+    private final boolean arrayBinding;
+
+    private final boolean flattenSubqueries;
+
+    private final boolean inferPredicates;
+
+    private final boolean normalizeFilters;
+
+    private final Collation likeCollation;
+
+    private final Character likeEscape;
+
+    private final long version;
+
+    Configuration(Map<String, FunctionDefinition> functions,
+                  Collection<Relation> relations,
+                  ValueListStrategy valueListStrategy,
+                  int maximumListSize,
+                  Dialect dialect,
+                  boolean arrayBinding,
+                  boolean flattenSubqueries,
+                  boolean inferPredicates,
+                  boolean normalizeFilters,
+                  Collation likeCollation,
+                  Character likeEscape,
+                  long version) {
+        this.functions = Collections.unmodifiableMap(new HashMap<>(functions));
+
+        for (Map.Entry<String, FunctionDefinition> entry : functions.entrySet()) {
+            functionNames.putIfAbsent(entry.getValue().getType(), entry.getKey());
+        }
+
+        this.relations = new RelationCatalog(relations);
+        this.valueListStrategy = valueListStrategy;
+        this.maximumListSize = maximumListSize;
+        this.dialect = dialect;
+        this.arrayBinding = arrayBinding;
+        this.flattenSubqueries = flattenSubqueries;
+        this.inferPredicates = inferPredicates;
+        this.normalizeFilters = normalizeFilters;
+        this.likeCollation = likeCollation;
+        this.likeEscape = likeEscape;
+        this.version = version;
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    ValueListStrategy getValueListStrategy() {
+        return valueListStrategy;
+    }
+
+    int getMaximumListSize() {
+        return maximumListSize;
+    }
+
+    Dialect getDialect() {
+        return dialect;
+    }
+
+    boolean isArrayBinding() {
+        return arrayBinding;
+    }
+
+    boolean isFlattenSubqueries() {
+        return flattenSubqueries;
+    }
+
+    boolean isInferPredicates() {
+        return inferPredicates;
+    }
+
+    boolean isNormalizeFilters() {
+        return normalizeFilters;
+    }
+
+    Collation getLikeCollation() {
+        return likeCollation;
+    }
+
+    Character getLikeEscape() {
+        return likeEscape;
+    }
+
+    FunctionDefinition getFunction(String function) {
+        return functions.get(function);
+    }
+
+    String getFSNameForFunction(Function function) {
+        return functionNames.get(function.getClass());
+    }
+
+    Relation getRelation(String table1, String column1, String table2) {
+        return relations.getRelation(table1, column1, table2);
+    }
+}
@@ -1,85 +1,103 @@
 package functionalsql;
 
-import functionalsql.consumer.TableOrColumnConsumer;
+import functionalsql.consumer.ArgumentSchema;
 import functionalsql.consumer.Consumer;
-import functionalsql.consumer.FunctionConsumer;
-import functionalsql.consumer.TokenConsumer;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
 
 public abstract class Function {
-    private FunctionalSQLCompiler compiler;
-    private Map<Integer, Consumers> consumersPerArgument = new HashMap<>();
-    private Map<Consumer, Integer> nextArgumentForConsumer = new HashMap<>();
+    private final static Map<Class<? extends Function>, ArgumentSchema> SCHEMAS = new ConcurrentHashMap<>();
 
+    private ParseContext context;
+
+    private ArgumentSchema schema;
+
+    /* Cursor of the function: the argument which is expected next and whether a value was consumed for it.
+    */
     private int argument = 0;
+    private boolean consumed = false;
 
-    public void setCompiler(FunctionalSQLCompiler compiler) {
-        this.compiler = compiler;
+    public void setContext(ParseContext context) {
+        this.context = context;
     }
 
-    public FunctionalSQLCompiler getCompiler() {
-        return compiler;
+    public ParseContext getContext() {
+        return context;
     }
 
-    public boolean expectTableOrColumn() {
-        Consumers consumers = consumersPerArgument.get(argument);
-        if(consumers == null) {
-            return false;
+    /**
+     * Declares the arguments of the function. The method is called once per function class, the resulting schema
+     * is shared by all instances. Processors of consumers should therefore only use the function they receive.
+     */
+    protected abstract void buildArguments(ArgumentSchema.Builder arguments);
+
+    private ArgumentSchema getSchema() {
+        if (schema == null) {
+            schema = SCHEMAS.get(getClass());
+
+            if (schema == null) {
+                schema = SCHEMAS.computeIfAbsent(getClass(), c -> {
+                    ArgumentSchema.Builder builder = new ArgumentSchema.Builder();
+                    buildArguments(builder);
+                    return builder.create();
+                });
+            }
         }
-        return consumers.tokenConsumer instanceof TableOrColumnConsumer;
+
+        return schema;
     }
 
-    public boolean argumentTakesAStatement() {
-        Consumers consumers = consumersPerArgument.get(argument);
-        if(consumers == null) {
-            return false;
-        }
+    public boolean expectTableOrColumn() {
+        return getSchema().expectsTableOrColumn(argument);
+    }
 
-        return consumers.consumers.stream().filter(c -> c.isConsumingAStatement()).count() > 0;
+    public boolean argumentTakesAStatement() {
+        return getSchema().takesAStatement(argument);
     }
 
     protected void preParse() {
     }
 
-    @SuppressWarnings("unchecked")
     public void process(Object token) throws Exception {
-        Consumers consumers = consumersPerArgument.get(argument);
-        if(consumers == null) {
-            getCompiler().syntaxError(FunctionalSQLCompiler.ERR_FUNCTION_HAS_TOO_MANY_ARGUMENTS);
+        ArgumentSchema schema = getSchema();
+
+        if(!schema.isDefined(argument)) {
+            getContext().syntaxError(FunctionalSQLCompiler.ERR_FUNCTION_HAS_TOO_MANY_ARGUMENTS);
         }
 
-        Consumer consumer;
+        int next;
 
         if(token instanceof Function) {
-            if((consumer = consumers.functionConsumer) == null) {
-                getCompiler().syntaxError(FunctionalSQLCompiler.ERR_CANNOT_USE_FUNCTION_AS_ARGUMENT_OF_FUNCTION,
-                        getCompiler().getFSNameForFunction((Function)token),
-                        getCompiler().getFSNameForFunction(this));
+            Consumer<Function, Function> consumer = schema.getFunctionConsumer(argument);
+
+            if(consumer == null) {
+                getContext().syntaxError(FunctionalSQLCompiler.ERR_CANNOT_USE_FUNCTION_AS_ARGUMENT_OF_FUNCTION,
+                        getContext().getFSNameForFunction((Function)token),
+                        getContext().getFSNameForFunction(this));
             }
-        } else if((consumer = consumers.tokenConsumer) == null) {
-            /* At this point there are consumers, so the remaining consumer has to be a FunctionConsumer.
-            */
-            getCompiler().syntaxError(FunctionalSQLCompiler.ERR_EXPECT_A_FUNCTION_CALL, token);
-        }
 
-        consumer.consume(token);
+            consumer.consume(this, (Function)token);
+            next = schema.getNextArgument(argument, true);
+        } else {
+            Consumer<Function, String> consumer = schema.getTokenConsumer(argument);
 
-        if(consumer.isSingleValue()) {
-            argument++;
-        }
+            if(consumer == null) {
+                /* At this point there are consumers, so the remaining consumer has to be a FunctionConsumer.
+                */
+                getContext().syntaxError(FunctionalSQLCompiler.ERR_EXPECT_A_FUNCTION_CALL, token);
+            }
 
-        if(nextArgumentForConsumer.containsKey(consumer)) {
-            argument = nextArgumentForConsumer.get(consumer);
+            consumer.consume(this, (String)token);
+            next = schema.getNextArgument(argument, false);
         }
+
+        consumed = next == argument;
+        argument = next;
     }
 
     protected boolean isFinished() {
-        return consumersPerArgument.get(argument) == null;
+        return !getSchema().isDefined(argument);
     }
 
     protected boolean expectArgument() {
@@ -87,56 +105,11 @@ public abstract class Function {
             return false;
         }
 
-        if(hasConsumed()) {
+        if(consumed) {
             return false;
         }
 
-        return consumersPerArgument.get(argument).consumers.stream().filter(c -> c.isMandatory()).count() > 0;
-    }
-
-    public void build(Consumer consumer) {
-        Integer argument = consumersPerArgument.keySet().stream().max(Comparator.naturalOrder()).map(s -> s + 1).orElse(0);
-        consumersPerArgument.computeIfAbsent(argument, v -> new Consumers()).add(consumer);
-    }
-
-    public void build(Integer argument, Consumer consumer) {
-        consumersPerArgument.computeIfAbsent(argument, v -> new Consumers()).add(consumer);
-    }
-
-    public void buildAndReplace(Integer argument, Consumer consumer) {
-        consumersPerArgument.put(argument + 1, consumersPerArgument.get(argument));
-        consumersPerArgument.remove(argument);
-        build(argument, consumer);
-    }
-
-    protected void setNextStepForConsumer(Consumer consumer, Integer nextStep) {
-        nextArgumentForConsumer.put(consumer, nextStep);
-    }
-
-    private class Consumers {
-        FunctionConsumer functionConsumer;
-        TokenConsumer tokenConsumer;
-        List<Consumer> consumers = new ArrayList<>();
-
-        void add(Consumer consumer) {
-            if(consumer instanceof FunctionConsumer) {
-                if(functionConsumer != null) {
-                    throw new RuntimeException("Consumer already defined.");
-                }
-                functionConsumer = (FunctionConsumer)consumer;
-            } else {
-                if(tokenConsumer != null) {
-                    throw new RuntimeException("Consumer already defined.");
-                }
-                tokenConsumer = (TokenConsumer)consumer;
-            }
-
-            consumers.add(consumer);
-        }
-    }
-
-    private boolean hasConsumed() {
-        return consumersPerArgument.get(argument).consumers.stream().filter(c -> c.hasConsumed()).count() > 0;
+        return getSchema().isMandatory(argument);
     }
 
     public abstract void execute() throws Exception;
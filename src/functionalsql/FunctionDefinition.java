@@ -0,0 +1,48 @@
+package functionalsql;
+
+import java.lang.reflect.Constructor;
+import java.util.function.Supplier;
+
+/**
+ * Registered FS function: the class of the function and the factory which creates its instances.
+ *
+ * Functions registered with a factory are created without reflection. Functions registered by class only are
+ * created through their (cached) default constructor.
+ */
+final class FunctionDefinition {
+    private final Class<? extends Function> type;
+
+    private final Supplier<? extends Function> factory;
+
+    private final Constructor<? extends Function> constructor;
+
+    private FunctionDefinition(Class<? extends Function> type, Supplier<? extends Function> factory, Constructor<? extends Function> constructor) {
+        this.type = type;
+        this.factory = factory;
+        this.constructor = constructor;
+    }
+
+    static FunctionDefinition of(Class<? extends Function> type, Supplier<? extends Function> factory) {
+        return new FunctionDefinition(type, factory, null);
+    }
+
+    /* The class of the function is determined by creating one instance of it.
+    */
+    static FunctionDefinition of(Supplier<? extends Function> factory) {
+        return new FunctionDefinition(factory.get().getClass(), factory, null);
+    }
+
+    static FunctionDefinition of(Class<? extends Function> type) throws NoSuchMethodException {
+        Constructor<? extends Function> constructor = type.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        return new FunctionDefinition(type, null, constructor);
+    }
+
+    Class<? extends Function> getType() {
+        return type;
+    }
+
+    Function create() throws Exception {
+        return factory != null ? factory.get() : constructor.newInstance();
+    }
+}
@@ -0,0 +1,22 @@
+package functionalsql;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of the execution of one FS function.
+ */
+@Name("functionalsql.FunctionExecution")
+@Label("FS Function Execution")
+@Category("FunctionalSQL")
+@StackTrace(false)
+final class FunctionEvent extends Event {
+    @Label("Function")
+    String function;
+
+    @Label("Statement Hash")
+    int statementHash;
+}
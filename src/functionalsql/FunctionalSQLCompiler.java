@@ -1,10 +1,14 @@
 package functionalsql;
 
+import functionalsql.ast.Dialect;
+import functionalsql.ast.Query;
+import functionalsql.ast.FilterNormalizer;
+import functionalsql.ast.PredicateInference;
+import functionalsql.ast.SubqueryFlattener;
 import functionalsql.functions.*;
 
-import java.lang.reflect.Constructor;
 import java.util.*;
-import java.util.regex.Pattern;
+import java.util.function.Supplier;
 
 /**
  * Functional sql compiler.
@@ -59,429 +63,745 @@ public class FunctionalSQLCompiler {
 
     public static final String ERR_FUNCTION_HAS_TOO_MANY_ARGUMENTS = "Function has to many arguments.";
 
-    private Map<String, Class<? extends Function>> functions = new HashMap<>();
+    public static final String ERR_PARAMETER_AS_TABLE_OR_COLUMN = "Parameter (%s) cannot be used as table or column.";
 
-    private List<Statement> statements = new ArrayList<>();
+    public static final String ERR_LIMIT_ALREADY_DEFINED = "Limit clause already defined.";
 
-    private List<String> textElements;
+    public static final String ERR_LIMIT_SHOULD_BE_A_NUMBER = "Limit or offset (%s) should be a positive number or a placeholder.";
 
-    private List<Relation> relations = new ArrayList<Relation>();
+    public static final String ERR_AFTER_NEEDS_A_VALUE_PER_COLUMN = "After needs a value for every column (%s).";
 
-    private String originalStatement;
-    private int popCounter = 0;
+    public static final String ERR_AFTER_ALREADY_DEFINED = "After clause already defined.";
 
-    private final static Pattern TABLE_COLUMN_FORMAT=Pattern.compile("[a-zA-Z0-9_]*");
+    public static final String ERR_AFTER_DOES_NOT_MATCH_ORDER_BY = "Columns of after (%s) do not match the order by clause (%s).";
 
-    private final static Pattern NUMMERIC_FORMAT=Pattern.compile("[-]*[0-9.]*");
+    private final Map<String, FunctionDefinition> functions = new HashMap<>();
+
+    private final Set<Relation> relations = new LinkedHashSet<>();
+
+    /* Snapshot of the functions and relations, shared by all parse calls. It is dropped when the configuration
+    changes and lazily recreated by the first parse call after the change.
+    */
+    private volatile Configuration configuration;
+
+    private long version = 0;
+
+    private volatile StatementCache statementCache;
+
+    private volatile boolean parameterizeLiterals;
+
+    private volatile MetricsListener metricsListener;
+
+    private ValueListStrategy valueListStrategy = ValueListStrategy.IN_LIST;
+
+    private int maximumListSize = Integer.MAX_VALUE;
+
+    private Dialect dialect = Dialect.ANSI;
+
+    private boolean arrayBinding;
+
+    private boolean flattenSubqueries;
+
+    private boolean inferPredicates;
+
+    private boolean normalizeFilters;
+
+    private Collation likeCollation;
+
+    private Character likeEscape;
 
     public FunctionalSQLCompiler() {
-        functions.put("join", Join.class);
-        functions.put("innerjoin", InnerJoin.class);
-        functions.put("leftjoin", LeftJoin.class);
-        functions.put("rightjoin", RightJoin.class);
-        functions.put("fulljoin", FullJoin.class);
-        functions.put("print", Print.class);
-        functions.put("like", Like.class);
-        functions.put("group", Group.class);
-        functions.put("asc", Order.class);
-        functions.put("desc", Desc.class);
-        functions.put("sum", Sum.class);
-        functions.put("(", Statement.class);
-        functions.put("distinct", Distinct.class);
-        functions.put("min", Min.class);
-        functions.put("max", Max.class);
-        functions.put("filter", Filter.class);
-        functions.put("filterdate", FilterDate.class);
-        functions.put("notfilter", NotFilter.class);
-        functions.put("newtable", NewTable.class);
-        functions.put("ref", Ref.class);
-        functions.put("or", Or.class);
-        functions.put("and", And.class);
-        functions.put("in", In.class);
+        functions.put("join", FunctionDefinition.of(Join.class, Join::new));
+        functions.put("innerjoin", FunctionDefinition.of(InnerJoin.class, InnerJoin::new));
+        functions.put("leftjoin", FunctionDefinition.of(LeftJoin.class, LeftJoin::new));
+        functions.put("rightjoin", FunctionDefinition.of(RightJoin.class, RightJoin::new));
+        functions.put("fulljoin", FunctionDefinition.of(FullJoin.class, FullJoin::new));
+        functions.put("print", FunctionDefinition.of(Print.class, Print::new));
+        functions.put("like", FunctionDefinition.of(Like.class, Like::new));
+        functions.put("group", FunctionDefinition.of(Group.class, Group::new));
+        functions.put("asc", FunctionDefinition.of(Order.class, Order::new));
+        functions.put("desc", FunctionDefinition.of(Desc.class, Desc::new));
+        functions.put("sum", FunctionDefinition.of(Sum.class, Sum::new));
+        functions.put("(", FunctionDefinition.of(Statement.class, Statement::new));
+        functions.put("distinct", FunctionDefinition.of(Distinct.class, Distinct::new));
+        functions.put("min", FunctionDefinition.of(Min.class, Min::new));
+        functions.put("max", FunctionDefinition.of(Max.class, Max::new));
+        functions.put("filter", FunctionDefinition.of(Filter.class, Filter::new));
+        functions.put("filterdate", FunctionDefinition.of(FilterDate.class, FilterDate::new));
+        functions.put("notfilter", FunctionDefinition.of(NotFilter.class, NotFilter::new));
+        functions.put("newtable", FunctionDefinition.of(NewTable.class, NewTable::new));
+        functions.put("ref", FunctionDefinition.of(Ref.class, Ref::new));
+        functions.put("or", FunctionDefinition.of(Or.class, Or::new));
+        functions.put("and", FunctionDefinition.of(And.class, And::new));
+        functions.put("in", FunctionDefinition.of(In.class, In::new));
+        functions.put("limit", FunctionDefinition.of(Limit.class, Limit::new));
+        functions.put("after", FunctionDefinition.of(After.class, After::new));
+        functions.put("exists", FunctionDefinition.of(Exists.class, Exists::new));
+        functions.put("notexists", FunctionDefinition.of(NotExists.class, NotExists::new));
     }
 
+    /**
+     * Compiles an FS statement into SQL. The method can be called concurrently from multiple threads: all state
+     * of the compilation is kept in a ParseContext which is private to the call.
+     */
     public String parse(String statement) throws Exception {
         if (isNull(statement)) {
             throw new Exception("No statement.");
         }
 
-        /* Initializing.
-        */
-        originalStatement = statement;
-        textElements = new ArrayList<>();
+        Configuration configuration = getConfiguration();
+        StatementCache cache = statementCache;
+        CompileStatistics statistics = CompileStatistics.start(metricsListener, statement);
+
+        try {
+            if (cache != null) {
+                String sql = cache.get(statement, configuration.getVersion());
+
+                if (sql != null) {
+                    if (statistics != null) {
+                        statistics.cacheHit(sql.length());
+                        statistics.completed();
+                    }
+
+                    return sql;
+                }
+            }
+
+            Statement s = compile(configuration, statement, statistics);
+            String sql;
+
+            if (statistics == null) {
+                sql = s.getSql();
+            } else {
+                long start = System.nanoTime();
+                sql = s.getSql();
+                statistics.rendered(System.nanoTime() - start, sql.length());
+                statistics.completed();
+            }
+
+            if (cache != null) {
+                cache.put(statement, configuration.getVersion(), sql);
+            }
 
-        for (String s : new StatementChopper(statement)) {
-            textElements.add(s);
+            return sql;
+        } finally {
+            if (statistics != null) {
+                statistics.report();
+            }
         }
+    }
 
-        Statement s = new Statement();
-        s.setCompiler(this);
-        parse(s);
-        s.execute();
+    /**
+     * Compiles an FS statement and writes the SQL to the output. The SQL of the statement, including its nested
+     * statements, is written once into the output without building intermediate strings.
+     */
+    public void parse(String statement, Appendable sql) throws Exception {
+        if (statementCache != null) {
+            sql.append(parse(statement));
+            return;
+        }
+
+        if (isNull(statement)) {
+            throw new Exception("No statement.");
+        }
 
-        return s.getSql();
+        CompileStatistics statistics = CompileStatistics.start(metricsListener, statement);
+
+        if (statistics == null) {
+            compile(getConfiguration(), statement, null).render(sql);
+            return;
+        }
+
+        try {
+            Statement s = compile(getConfiguration(), statement, statistics);
+            long start = System.nanoTime();
+            s.render(sql);
+            statistics.rendered(System.nanoTime() - start, -1);
+            statistics.completed();
+        } finally {
+            statistics.report();
+        }
     }
 
-    /* Parsing of a Statement requires a little different parsing then parsing a normal function.
-    A statement is always of the form 'table function function' and a normal function is always of the form
-    function(a,b,c) e.g. usage of commas.
-    */
-    private void parse(Function function) throws Exception {
-        if(function.getClass() == Statement.class) {
-            statements.add((Statement)function);
-        } else {
-            /* All Functions, except the Statement should always begin with an opening bracket.
-            */
-            if (!"(".equals(pop())) {
-                syntaxError(ERR_EXP_OPENING_BRACKET);
-            }
+    /**
+     * Compiles an FS statement into an immutable query. The query can be inspected, rewritten (see Query.toBuilder)
+     * and rendered with a SqlRenderer.
+     */
+    public Query compile(String statement) throws Exception {
+        if (isNull(statement)) {
+            throw new Exception("No statement.");
         }
 
-        String token;
+        CompileStatistics statistics = CompileStatistics.start(metricsListener, statement);
 
-        do {
-            token = pop();
+        if (statistics == null) {
+            return compile(getConfiguration(), statement, null).getQuery();
+        }
 
-            if(token == null || ")".equals(token)) {
-                break;
-            }
+        try {
+            Query query = compile(getConfiguration(), statement, statistics).getQuery();
+            statistics.completed();
+            return query;
+        } finally {
+            statistics.report();
+        }
+    }
 
-            if("'".equals(token)) {
-                token = "'" + pop() + "'";
+    /**
+     * Compiles an FS statement with placeholders ('?' or ':name', e.g. 'a filter(id, ?)') into a template. The SQL
+     * of the template contains JDBC markers and the template binds the values of the placeholders in marker order,
+     * so the statement is compiled once for all values.
+     */
+    public Template compileTemplate(String statement) throws Exception {
+        if (isNull(statement)) {
+            throw new Exception("No statement.");
+        }
 
-                if(!"'".equals(pop())) {
-                    syntaxError(ERR_MISSING_END_QUOTE);
-                }
-            }
+        Configuration configuration = getConfiguration();
+        CompileStatistics statistics = CompileStatistics.start(metricsListener, statement);
 
-            boolean argumentTakesAStatement = function.argumentTakesAStatement();
+        if (statistics == null) {
+            return new Template(compile(configuration, statement, null).getQuery(), configuration.getDialect(), parameterizeLiterals, configuration.isArrayBinding());
+        }
 
-            Class<? extends Function> functionClass = getFunction(token);
+        try {
+            Query query = compile(configuration, statement, statistics).getQuery();
+            long start = System.nanoTime();
+            Template template = new Template(query, configuration.getDialect(), parameterizeLiterals, configuration.isArrayBinding());
+            statistics.rendered(System.nanoTime() - start, template.getSql().length());
+            statistics.completed();
+            return template;
+        } finally {
+            statistics.report();
+        }
+    }
 
-            if(functionClass != null) {
-                if(functionClass == Ref.class && !function.expectTableOrColumn()) {
-                    syntaxError(ERR_CANNOT_USE_FUNCTION_AS_ARGUMENT_OF_FUNCTION, token, getFSNameForFunction(function));
-                }
+    /**
+     * Checks an FS statement and returns all errors in it (an empty list if the statement is correct). After an error
+     * the rest of the function in which it was found is skipped and checking continues with the next function.
+     */
+    public List<CompileException> validate(String statement) throws Exception {
+        if (isNull(statement)) {
+            throw new Exception("No statement.");
+        }
 
-                if(functionClass == Ref.class) {
-                    function.process(((Ref)exec(functionClass, null)).getReference());
-                } else if(Join.class.isAssignableFrom(function.getClass())) {
-                    function.process(exec(functionClass,((Join)function).getJoinTable()));
-                } else if(function instanceof Statement){
-                    function.process(exec(functionClass, ((Statement)function).getDriveTableOfQuery()));
-                } else {
-                    function.process(exec(functionClass,null));
-                }
-            } else {
-                if (function.expectTableOrColumn()) {
-                    token = resolveColumn(token);
-                }
+        ParseContext context = new ParseContext(getConfiguration(), statement);
+        List<CompileException> diagnostics = new ArrayList<>();
 
-                function.process(token);
+        Statement s = new Statement();
+        s.setContext(context);
+        parse(context, s, diagnostics);
+
+        if (diagnostics.isEmpty()) {
+            try {
+                s.execute();
+            } catch (CompileException e) {
+                diagnostics.add(e);
             }
+        }
 
-            /* Process the comma following the argument. Unless the argument takes a statement, because statements
-            are consisting of functions which are not seperated by a commma.
-            */
-            if(argumentTakesAStatement) {
-                continue;
-            }
+        return diagnostics;
+    }
 
-            token = pop();  //Expect ',' or ')'.
+    /* The statistics are null if metrics are disabled.
+    */
+    private Statement compile(Configuration configuration, String statement, CompileStatistics statistics) throws Exception {
+        ParseContext context = new ParseContext(configuration, statement, statistics);
 
-            switch(token != null ? token : "") {
-                case ",":
-                    if(function.isFinished()) {
-                        syntaxError(ERR_FUNCTION_HAS_TOO_MANY_ARGUMENTS);
-                    }
-                    break;
-                case ")": break;
-                default: syntaxError(ERR_UNEXPECTED_END_OF_FUNCTION);
+        Statement s = new Statement();
+        s.setContext(context);
 
-            }
-        } while(!")".equals(token));
+        if (statistics == null) {
+            parse(context, s, null);
+        } else {
+            long tokenizeNanos = context.getTokens().measure();
+            long start = System.nanoTime();
+            parse(context, s, null);
+            statistics.parsed(System.nanoTime() - start, tokenizeNanos, context.getTokens().count());
+        }
 
-        if(function.expectArgument() ||
-                (token == null && function.getClass() != Statement.class) ||
-                (")".equals(token) && function.getClass() == Statement.class && statements.size() == 1)) { // root statement should not close with ')'.
-            syntaxError(ERR_UNEXPECTED_END_OF_FUNCTION);
+        execute(context, s);
+
+        if (configuration.isFlattenSubqueries()) {
+            s.rewrite(SubqueryFlattener::flatten);
         }
 
-        if(function.getClass() == Statement.class) {
-            statements.remove(function);
+        if (configuration.isInferPredicates()) {
+            s.rewrite(PredicateInference::infer);
         }
+
+        /* After inference, so contradictions between inferred filters are found and duplicates are removed.
+        */
+        if (configuration.isNormalizeFilters()) {
+            s.rewrite(query -> FilterNormalizer.normalize(query, configuration.getMaximumListSize()));
+        }
+
+        return s;
     }
 
-    private String pop() {
-        if (textElements.size() == 0) {
-            return null;
+    private static void execute(ParseContext context, Function function) throws Exception {
+        CompileStatistics statistics = context.getStatistics();
+
+        if (statistics == null) {
+            function.execute();
+            return;
         }
 
-        String element = textElements.get(0);
-        textElements.remove(0);
-        popCounter++;
-        return element;
+        long start = System.nanoTime();
+        FunctionEvent event = statistics.beginFunction();
+        function.execute();
+        statistics.executed(context.getFSNameForFunction(function), System.nanoTime() - start, event);
     }
 
-    public String getFSNameForFunction(Function function) {
-        return functions.entrySet().stream().filter(e -> e.getValue() == function.getClass()).findFirst().map(Map.Entry::getKey).get();
+    /**
+     * Enables caching of compiled statements. The cache is cleared when functions or relations are added or renamed.
+     * Use null to disable caching (default).
+     */
+    public synchronized void setStatementCache(StatementCache statementCache) {
+        if (statementCache != null) {
+            statementCache.clear();
+        }
+
+        this.statementCache = statementCache;
     }
 
-    public Class<? extends Function> getFunction(String function) {
-        return functions.get(function);
+    public StatementCache getStatementCache() {
+        return statementCache;
     }
 
-    public void renameFunction(String existingFunction, String newFunction) throws Exception {
-        Class<? extends Function> function = functions.get(existingFunction);
-        if(function == null) {
-            syntaxError(ERR_UNKNOWN_FUNCTION, existingFunction);
-        }
-        functions.remove(existingFunction);
-        functions.put(newFunction, function);
+    /**
+     * Passes the statistics of every compilation (parse, compile and compileTemplate) to the listener, e.g. a
+     * functionalsql.metrics.CompilerMetrics. Use null to disable metrics (default); nothing is then measured, unless a
+     * flight recording with the FS events (functionalsql.Compile and functionalsql.FunctionExecution) is running.
+     */
+    public void setMetricsListener(MetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
     }
 
-    public void addCustomFunction(String name, Class<? extends Function> function) {
-        functions.put(name, function);
+    public MetricsListener getMetricsListener() {
+        return metricsListener;
     }
 
-    public void addRelation(String table1, String column1, String table2, String column2) throws Exception {
-        Relation relation = new Relation(table1, column1, table2, column2);
+    /**
+     * When set, templates (see compileTemplate) also contain a marker instead of every literal value (e.g. the 42 in
+     * 'a filter(id, 42)'). The template binds the values of the literals, so statements which only differ in their
+     * constants share one SQL text. parse is not affected.
+     */
+    public void setParameterizeLiterals(boolean parameterizeLiterals) {
+        this.parameterizeLiterals = parameterizeLiterals;
+    }
 
-        if (!relations.contains(relation)) {
-            relations.add(relation);
-        }
+    public boolean isParameterizeLiterals() {
+        return parameterizeLiterals;
     }
 
-    public void addDefaultRelation(String column1, String column2) throws Exception {
-        Relation relation = new Relation(column1, column2);
-        if(!relations.contains(relation)) {
-            relations.add(relation);
+    /**
+     * Sets how filter and notfilter render value lists with more than maximumListSize values (see ValueListStrategy).
+     */
+    public synchronized void setValueListStrategy(ValueListStrategy valueListStrategy, int maximumListSize) {
+        if (maximumListSize < 1) {
+            throw new IllegalArgumentException("Maximum list size should be at least 1.");
         }
+
+        this.valueListStrategy = valueListStrategy;
+        this.maximumListSize = maximumListSize;
+        configurationChanged();
     }
 
-    private boolean isNull(String s) {
-        return s == null || s.length() == 0;
+    public synchronized void setDialect(Dialect dialect) {
+        this.dialect = dialect;
+        configurationChanged();
     }
 
-    public Relation getRelation(String table1, String column1, String table2) {
-        Relation defaultRelation = null;
+    public Dialect getDialect() {
+        return getConfiguration().getDialect();
+    }
 
-        for (Relation relation : relations) {
-            if (relation.isDefault()) {
-                defaultRelation = relation;
-            }
+    /**
+     * When set and the dialect supports it (see Dialect.supportsArrayBinding), templates bind the values of a filter or
+     * notfilter list as one array parameter (e.g. 'v = ANY(?)' with an Object[]), so lists of every length share one
+     * SQL text. Lists are then not split by the value list strategy. parse writes the list as an IN list.
+     */
+    public synchronized void setArrayBinding(boolean arrayBinding) {
+        this.arrayBinding = arrayBinding;
+        configurationChanged();
+    }
 
-            if(relation.matches(table1, column1, table2)) {
-                return relation;
-            }
-        }
+    public boolean isArrayBinding() {
+        return getConfiguration().isArrayBinding();
+    }
 
-        /* Found no relation. Check if we can return the default relation. RULE: Compiler does not override programmed columns names.
-        */
-        if (defaultRelation != null) {
-            if (column1 != null) {
-                if (defaultRelation.defaultRelationMatches(column1)) {
-                    return defaultRelation;
-                }
-            } else {
-                return defaultRelation;
-            }
-        }
+    /**
+     * When set, nested statements in the FROM clause are merged into the statement which contains them (see
+     * SubqueryFlattener), e.g. 'a join((b filter(v, 1)), id, id)' selects from a and b instead of from a and a nested
+     * query. The database can then choose the join order of all tables.
+     */
+    public synchronized void setFlattenSubqueries(boolean flattenSubqueries) {
+        this.flattenSubqueries = flattenSubqueries;
+        configurationChanged();
+    }
 
-        return null;
+    public boolean isFlattenSubqueries() {
+        return getConfiguration().isFlattenSubqueries();
     }
 
-    public void syntaxError(String format, Object... args) throws Exception {
-        String error = String.format(format, args);
+    /**
+     * When set, filters on a column are copied to the columns it is joined on (see PredicateInference), e.g.
+     * 'a join(b) filter(a.id, 5)' also filters t1.id = 5. Columns of the null-supplying side of outer joins are skipped.
+     */
+    public synchronized void setInferPredicates(boolean inferPredicates) {
+        this.inferPredicates = inferPredicates;
+        configurationChanged();
+    }
 
-        String indicator = "", arrowLine = "";
+    public boolean isInferPredicates() {
+        return getConfiguration().isInferPredicates();
+    }
 
-        for (int idx = 0; idx < popCounter - 1; idx++) {
-            indicator += " ";
-            arrowLine += "-";
-        }
+    /**
+     * When set, the filters are normalized (see FilterNormalizer): nested ors and ands are flattened, equalities on
+     * a column in an or are merged into an IN list and duplicates are removed. A query with filters which contradict
+     * each other, e.g. 'a filter(v, 1) notfilter(v, 1)', is marked as provably empty (Query.isProvablyEmpty), so it
+     * does not have to be executed.
+     */
+    public synchronized void setNormalizeFilters(boolean normalizeFilters) {
+        this.normalizeFilters = normalizeFilters;
+        configurationChanged();
+    }
 
-        indicator += "|";
-        arrowLine += "-";
+    public boolean isNormalizeFilters() {
+        return getConfiguration().isNormalizeFilters();
+    }
 
-        throw new Exception(String.format("Syntax error: %s\n%s\n%s\n%s",
-                error,
-                originalStatement,
-                indicator,
-                arrowLine));
+    /**
+     * When the collation is set, like filters are rewritten so the database can use an index (see Collation): a
+     * pattern without wildcards becomes an equality and a pattern with a prefix before its first wildcard becomes a
+     * range on the prefix. Patterns which start with a wildcard are not changed. The escape is the escape character of
+     * the database in like patterns (e.g. a backslash for PostgreSQL and MySQL), or null if it has none. A null collation
+     * disables the rewrite.
+     */
+    public synchronized void setSargableLike(Collation likeCollation, Character likeEscape) {
+        this.likeCollation = likeCollation;
+        this.likeEscape = likeEscape;
+        configurationChanged();
     }
 
-    public Statement getStatement() {
-        return statements.get(statements.size() - 1);
+    public Collation getLikeCollation() {
+        return getConfiguration().getLikeCollation();
     }
 
-    public int aliasToNumber(String alias) {
-        return Integer.parseInt(alias.substring(1));
+    public Character getLikeEscape() {
+        return getConfiguration().getLikeEscape();
     }
 
-    public String toString() {
-        return originalStatement;
+    public ValueListStrategy getValueListStrategy() {
+        return getConfiguration().getValueListStrategy();
     }
 
-    public boolean isQuoted(String value) {
-        return value.getBytes()[0] == '\''; // End quote is checked by the Function class.
+    public int getMaximumListSize() {
+        return getConfiguration().getMaximumListSize();
     }
 
-    public String[] splitTableColumn(String s) throws Exception {
-        int idx = s.indexOf('.');
+    /* Parsing of a Statement requires a little different parsing then parsing a normal function.
+    A statement is always of the form 'table function function' and a normal function is always of the form
+    function(a,b,c) e.g. usage of commas.
 
-        if (idx == 0) {
-            syntaxError(ERR_NULL_TABLE);
+    Nested functions are parsed with an explicit stack instead of recursion, so the nesting depth of a statement is
+    only limited by the heap. The function on top of the stack is the function which is being parsed. When it is
+    finished, it is executed and passed as argument to the function below it.
+    */
+    private void parse(ParseContext context, Statement statement, List<CompileException> diagnostics) throws Exception {
+        Deque<Frame> stack = new ArrayDeque<>();
+
+        begin(context, statement);
+        stack.push(new Frame(statement, false));
+
+        while(!stack.isEmpty()) {
+            try {
+                step(context, stack);
+            } catch(CompileException e) {
+                if(diagnostics == null) {
+                    throw e;
+                }
+
+                diagnostics.add(e);
+
+                if(!recover(context, stack)) {
+                    return;
+                }
+            }
         }
+    }
+
+    /* Parses the next token of the function on top of the stack.
+    */
+    private void step(ParseContext context, Deque<Frame> stack) throws Exception {
+        TokenStream tokens = context.getTokens();
+        Frame frame = stack.peek();
+        Function function = frame.function;
+
+        TokenStream.Kind kind = frame.closed ? TokenStream.Kind.CLOSING_BRACKET : tokens.next();
+
+        if(kind != TokenStream.Kind.END && kind != TokenStream.Kind.CLOSING_BRACKET) {
+            if(!tokens.isTerminated()) {
+                context.syntaxError(ERR_MISSING_END_QUOTE);
+            }
 
-        if (idx == s.length() - 1) {
-            syntaxError(ERR_NULL_FIELD);
+            String token = tokens.text();
+
+            frame.argumentTakesAStatement = function.argumentTakesAStatement();
+
+            FunctionDefinition definition = kind != TokenStream.Kind.LITERAL ? context.getFunctionDefinition(token) : null;
+
+            if(definition != null) {
+                Class<? extends Function> functionClass = definition.getType();
+                String driveTable = null;
+
+                if(functionClass == Ref.class) {
+                    if(!function.expectTableOrColumn()) {
+                        context.syntaxError(ERR_CANNOT_USE_FUNCTION_AS_ARGUMENT_OF_FUNCTION, token, context.getFSNameForFunction(function));
+                    }
+                } else if(Join.class.isAssignableFrom(function.getClass())) {
+                    driveTable = ((Join)function).getJoinTable();
+                } else if(function instanceof Statement) {
+                    driveTable = ((Statement)function).getDriveTableOfQuery();
+                }
+
+                Function nested = create(context, definition, driveTable);
+                begin(context, nested);
+                stack.push(new Frame(nested, functionClass == Ref.class));
+
+                if (context.getStatistics() != null) {
+                    context.getStatistics().nested(stack.size() - 1);
+                }
+
+                return;
+            }
+
+            if (kind == TokenStream.Kind.WORD && context.isParameter(token)) {
+                if (function.expectTableOrColumn()) {
+                    context.syntaxError(ERR_PARAMETER_AS_TABLE_OR_COLUMN, token);
+                }
+
+                token = context.numberParameter(token);
+            } else if (function.expectTableOrColumn()) {
+                token = context.resolveColumn(token);
+            }
+
+            function.process(token);
+            endOfArgument(context, frame);
+            return;
         }
 
-        if (idx < 0) {
-            return new String[] { s };
+        end(context, function, kind);
+        stack.pop();
+
+        /* The root statement is executed by the caller.
+        */
+        if(stack.isEmpty()) {
+            return;
         }
 
-        return new String[] { s.substring(0, idx), s.substring(idx + 1) };
+        execute(context, function);
+
+        Frame parent = stack.peek();
+        parent.function.process(frame.ref ? ((Ref)function).getReference() : function);
+        endOfArgument(context, parent);
     }
 
-    /** Column can be noted as table.column or just a column. In the first case function translates it into alias.column
-     * When value is a nummerical (for instance in function sum(1)), then argument is left untouched.
+    /* Panic mode recovery after an error: the functions which are being parsed are dropped and the tokens up to the
+    end of the top level function in which the error was found are skipped. Parsing continues with the next function
+    of the root statement. Returns false if the end of the statement is reached.
     */
-    public String resolveColumn(String value) throws Exception {
-        String[] tableAndColumn = splitTableColumn(value);
+    private boolean recover(ParseContext context, Deque<Frame> stack) {
+        TokenStream tokens = context.getTokens();
+        List<Statement> statements = context.getStatements();
 
-        if (isNummeric(tableAndColumn[0])) {
-            return value;
+        while(stack.size() > 1) {
+            stack.pop();
         }
 
-        for(String s : tableAndColumn) {
-            checkTableOrColumnFormat(s);
+        while(statements.size() > 1) {
+            statements.remove(statements.size() - 1);
         }
 
-        if (tableAndColumn.length == 1) {
-            return value;
+        stack.peek().closed = false;
+
+        if(tokens.kind() == TokenStream.Kind.END) {
+            return false;
         }
 
-        return getStatement().getAlias(tableAndColumn[0]) + "." + tableAndColumn[1];
-    }
+        /* Arguments of an unknown function on top level (e.g. 'a unknown(b)') belong to the error.
+        */
+        if(tokens.depth() == 0 && tokens.kind() == TokenStream.Kind.WORD && tokens.peek() == TokenStream.Kind.OPENING_BRACKET) {
+            tokens.next();
+        }
 
-    public void checkTableOrColumnFormat(String s) throws Exception {
-        if(s != null && !isTableOrColumnName(s)) {
-            syntaxError(ERR_WRONG_FORMAT_TABLE_OR_COLUMN_NAME, s);
+        while(tokens.depth() > 0) {
+            if(tokens.next() == TokenStream.Kind.END) {
+                return false;
+            }
         }
+
+        return true;
     }
 
-    public boolean isTableOrColumnName(String value) {
-        return TABLE_COLUMN_FORMAT.matcher(value).matches();
+    /* All Functions, except the Statement should always begin with an opening bracket.
+    */
+    private void begin(ParseContext context, Function function) throws Exception {
+        if(function.getClass() == Statement.class) {
+            context.getStatements().add((Statement)function);
+        } else if (context.getTokens().next() != TokenStream.Kind.OPENING_BRACKET) {
+            context.syntaxError(ERR_EXP_OPENING_BRACKET);
+        }
     }
 
-    public boolean isNummeric(String s) {
-        return NUMMERIC_FORMAT.matcher(s).matches();
+    /* Process the comma following the argument. Unless the argument takes a statement, because statements
+    are consisting of functions which are not seperated by a commma.
+    */
+    private void endOfArgument(ParseContext context, Frame frame) throws Exception {
+        if(frame.argumentTakesAStatement) {
+            return;
+        }
+
+        switch(context.getTokens().next()) { //Expect ',' or ')'.
+            case COMMA:
+                if(frame.function.isFinished()) {
+                    context.syntaxError(ERR_FUNCTION_HAS_TOO_MANY_ARGUMENTS);
+                }
+                break;
+            case CLOSING_BRACKET:
+                frame.closed = true;
+                break;
+            default: context.syntaxError(ERR_UNEXPECTED_END_OF_FUNCTION);
+        }
     }
 
-    private Function exec(Class<? extends Function> function, String driveTable) throws Exception {
-        Constructor<? extends Function> cons = function.getDeclaredConstructor();
-        Function instance = cons.newInstance();
+    private void end(ParseContext context, Function function, TokenStream.Kind kind) throws Exception {
+        List<Statement> statements = context.getStatements();
 
-        instance.setCompiler(this);
+        if(function.expectArgument() ||
+                (kind == TokenStream.Kind.END && function.getClass() != Statement.class) ||
+                (kind == TokenStream.Kind.CLOSING_BRACKET && function.getClass() == Statement.class && statements.size() == 1)) { // root statement should not close with ')'.
+            context.syntaxError(ERR_UNEXPECTED_END_OF_FUNCTION);
+        }
 
-        if (instance instanceof Join) {
-            ((Join) instance).setDriveTable(driveTable, getStatement().getAlias(driveTable));
+        if(function.getClass() == Statement.class) {
+            statements.remove(statements.size() - 1);
         }
+    }
 
-        instance.preParse();
+    /* Function which is being parsed. Ref functions are passed to their parent as the reference they resolve to.
+    */
+    private static class Frame {
+        final Function function;
+        final boolean ref;
+        boolean argumentTakesAStatement, closed;
+
+        Frame(Function function, boolean ref) {
+            this.function = function;
+            this.ref = ref;
+        }
+    }
 
-        parse(instance);
-        instance.execute();
+    public String getFSNameForFunction(Function function) {
+        return getConfiguration().getFSNameForFunction(function);
+    }
 
-        return instance;
+    public Class<? extends Function> getFunction(String function) {
+        FunctionDefinition definition = getConfiguration().getFunction(function);
+        return definition != null ? definition.getType() : null;
+    }
+
+    public synchronized void renameFunction(String existingFunction, String newFunction) throws Exception {
+        FunctionDefinition function = functions.get(existingFunction);
+        if(function == null) {
+            throw new Exception(String.format(ERR_UNKNOWN_FUNCTION, existingFunction));
+        }
+        functions.remove(existingFunction);
+        functions.put(newFunction, function);
+        configurationChanged();
     }
 
-    private class StatementChopper implements Iterable<String> {
-        private final char[] chars;
+    /**
+     * Adds a function which is created through its default constructor (reflection). Prefer addCustomFunction(String, Supplier).
+     */
+    public synchronized void addCustomFunction(String name, Class<? extends Function> function) {
+        try {
+            functions.put(name, FunctionDefinition.of(function));
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException(String.format("Function (%s) has no default constructor.", function.getName()), e);
+        }
 
-        private int pointer = 0;
+        configurationChanged();
+    }
 
-        private boolean quotedArea = false;
+    /**
+     * Adds a function which is created by the factory, e.g. addCustomFunction("id", Id::new).
+     */
+    public synchronized void addCustomFunction(String name, Supplier<? extends Function> factory) {
+        functions.put(name, FunctionDefinition.of(factory));
+        configurationChanged();
+    }
 
-        public StatementChopper(String statement) {
-            this.chars = statement.toCharArray();
+    public synchronized void addRelation(String table1, String column1, String table2, String column2) throws Exception {
+        if (relations.add(new Relation(table1, column1, table2, column2))) {
+            configurationChanged();
         }
+    }
 
-        @Override
-        public Iterator<String> iterator() {
-            return new Iterator<String>() {
-                public boolean hasNext() {
-                    /* Process white spaces.
-                    */
-                    for (; !quotedArea && pointer < chars.length && isWhiteSpace(chars[pointer]); pointer++) {
-                    }
+    public synchronized void addDefaultRelation(String column1, String column2) throws Exception {
+        if (relations.add(new Relation(column1, column2))) {
+            configurationChanged();
+        }
+    }
 
-                    return pointer < chars.length;
-                }
+    private boolean isNull(String s) {
+        return s == null || s.length() == 0;
+    }
 
-                public String next() {
-                    if (isQuote(chars[pointer])) {
-                        quotedArea = !quotedArea;
-                        return "" + chars[pointer++];
-                    }
+    public Relation getRelation(String table1, String column1, String table2) {
+        return getConfiguration().getRelation(table1, column1, table2);
+    }
 
-                    if (isSpecialChar(chars[pointer])) {
-                        return "" + chars[pointer++];
-                    }
+    /* Must be called while holding the lock of the compiler.
+    */
+    private void configurationChanged() {
+        version++;
+        configuration = null;
 
-                    StringBuilder s = new StringBuilder();
-
-                    /* When quoted, include whitespace/special chars.
-                    */
-                    if (quotedArea) {
-                        for (; pointer < chars.length && !isQuote(chars[pointer]); pointer++) {
-                            s.append(chars[pointer]);
-                        }
-                    } else {
-                        for (;
-                             pointer < chars.length &&
-                                     !isSpecialChar(chars[pointer]) &&
-                                     !isWhiteSpace(chars[pointer]) &&
-                                     !isQuote(chars[pointer]); pointer++) {
-                            s.append(chars[pointer]);
-                        }
-                    }
+        if (statementCache != null) {
+            statementCache.clear();
+        }
+    }
 
-                    return s.toString();
-                }
+    Configuration getConfiguration() {
+        Configuration c = configuration;
 
-                @Override
-                public void remove() {
-                }
+        if (c != null) {
+            return c;
+        }
 
-                private boolean isSpecialChar(char c) {
-                    if (c == '(' || c == ')' || c == ',') {
-                        return true;
-                    }
+        synchronized (this) {
+            if (configuration == null) {
+                configuration = new Configuration(functions, relations, valueListStrategy, maximumListSize, dialect, arrayBinding, flattenSubqueries, inferPredicates, normalizeFilters, likeCollation, likeEscape, version);
+            }
 
-                    return false;
-                }
+            return configuration;
+        }
+    }
 
-                /* Quote is also a special char, but requires unique processing.
-                */
-                private boolean isQuote(char c) {
-                    return c == '\'' ? true : false;
-                }
+    private Function create(ParseContext context, FunctionDefinition function, String driveTable) throws Exception {
+        Function instance = function.create();
 
-                private boolean isWhiteSpace(char c) {
-                    if (c == ' ' || c == '\t' || c == '\n') {
-                        return true;
-                    }
+        instance.setContext(context);
 
-                    return false;
-                }
-            };
+        if (instance instanceof Join) {
+            ((Join) instance).setDriveTable(driveTable, context.getStatement().getAlias(driveTable));
         }
-    }
 
-    public List<Statement> getStatements() {
-        return statements;
+        instance.preParse();
+
+        return instance;
     }
 }
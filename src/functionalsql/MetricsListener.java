@@ -0,0 +1,10 @@
+package functionalsql;
+
+/**
+ * Receives the statistics of every compilation of a compiler (see FunctionalSQLCompiler.setMetricsListener).
+ *
+ * The listener is called on the thread which compiled the statement, so it should return quickly.
+ */
+public interface MetricsListener {
+    void compiled(CompileStatistics statistics);
+}
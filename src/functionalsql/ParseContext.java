@@ -0,0 +1,222 @@
+package functionalsql;
+
+import functionalsql.ast.Dialect;
+import functionalsql.ast.Literal;
+import functionalsql.ast.Parameter;
+import functionalsql.ast.Value;
+import functionalsql.functions.Statement;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static functionalsql.FunctionalSQLCompiler.*;
+
+/**
+ * State of a single parse call.
+ *
+ * A context is created by the compiler for every parse call and is only used by the thread executing that call.
+ * Functions reach the statement they are part of, the relations and the error reporting through this context.
+ */
+public class ParseContext {
+    private final static Pattern TABLE_COLUMN_FORMAT=Pattern.compile("[a-zA-Z0-9_]*");
+
+    private final static Pattern NUMMERIC_FORMAT=Pattern.compile("[-]*[0-9.]*");
+
+    private final static Pattern PARAMETER_FORMAT=Pattern.compile("\\?[0-9]*|:[a-zA-Z_][a-zA-Z0-9_]*");
+
+    private final Configuration configuration;
+
+    private final String originalStatement;
+
+    private final TokenStream tokens;
+
+    private final List<Statement> statements = new ArrayList<>();
+
+    private int positionalParameters;
+
+    private final CompileStatistics statistics;
+
+    ParseContext(Configuration configuration, String originalStatement) {
+        this(configuration, originalStatement, null);
+    }
+
+    ParseContext(Configuration configuration, String originalStatement, CompileStatistics statistics) {
+        this.configuration = configuration;
+        this.originalStatement = originalStatement;
+        this.tokens = new TokenStream(originalStatement);
+        this.statistics = statistics;
+    }
+
+    /* Null if metrics are disabled.
+    */
+    CompileStatistics getStatistics() {
+        return statistics;
+    }
+
+    TokenStream getTokens() {
+        return tokens;
+    }
+
+    public Class<? extends Function> getFunction(String function) {
+        FunctionDefinition definition = configuration.getFunction(function);
+        return definition != null ? definition.getType() : null;
+    }
+
+    FunctionDefinition getFunctionDefinition(String function) {
+        return configuration.getFunction(function);
+    }
+
+    public String getFSNameForFunction(Function function) {
+        return configuration.getFSNameForFunction(function);
+    }
+
+    public Relation getRelation(String table1, String column1, String table2) {
+        Relation relation = configuration.getRelation(table1, column1, table2);
+
+        if (statistics != null) {
+            statistics.relationLookup(relation != null);
+        }
+
+        return relation;
+    }
+
+    public ValueListStrategy getValueListStrategy() {
+        return configuration.getValueListStrategy();
+    }
+
+    public int getMaximumListSize() {
+        return configuration.getMaximumListSize();
+    }
+
+    public Dialect getDialect() {
+        return configuration.getDialect();
+    }
+
+    /**
+     * True if value lists are bound as one array parameter. Filters then create a value list for a single value too,
+     * so lists of every length share the same SQL.
+     */
+    public boolean isArrayBinding() {
+        return configuration.isArrayBinding() && configuration.getDialect().supportsArrayBinding();
+    }
+
+    /**
+     * Collation for the sargable rewrite of like, or null if like is not rewritten.
+     */
+    public Collation getLikeCollation() {
+        return configuration.getLikeCollation();
+    }
+
+    /**
+     * Escape character of like patterns, or null if the database has none.
+     */
+    public Character getLikeEscape() {
+        return configuration.getLikeEscape();
+    }
+
+    /**
+     * Throws a CompileException for the token which was consumed last.
+     */
+    public void syntaxError(String format, Object... args) throws CompileException {
+        throw new CompileException(format, args, originalStatement, tokens.offset());
+    }
+
+    public Statement getStatement() {
+        return statements.get(statements.size() - 1);
+    }
+
+    public List<Statement> getStatements() {
+        return statements;
+    }
+
+    public int aliasToNumber(String alias) {
+        return Integer.parseInt(alias.substring(1));
+    }
+
+    public String toString() {
+        return originalStatement;
+    }
+
+    public boolean isQuoted(String value) {
+        return value.length() > 0 && value.charAt(0) == '\''; // End quote is checked by the Function class.
+    }
+
+    public String[] splitTableColumn(String s) throws Exception {
+        int idx = s.indexOf('.');
+
+        if (idx == 0) {
+            syntaxError(ERR_NULL_TABLE);
+        }
+
+        if (idx == s.length() - 1) {
+            syntaxError(ERR_NULL_FIELD);
+        }
+
+        if (idx < 0) {
+            return new String[] { s };
+        }
+
+        return new String[] { s.substring(0, idx), s.substring(idx + 1) };
+    }
+
+    /** Column can be noted as table.column or just a column. In the first case function translates it into alias.column
+     * When value is a nummerical (for instance in function sum(1)), then argument is left untouched.
+    */
+    public String resolveColumn(String value) throws Exception {
+        String[] tableAndColumn = splitTableColumn(value);
+
+        if (isNummeric(tableAndColumn[0])) {
+            return value;
+        }
+
+        for(String s : tableAndColumn) {
+            checkTableOrColumnFormat(s);
+        }
+
+        if (tableAndColumn.length == 1) {
+            return value;
+        }
+
+        return getStatement().getAlias(tableAndColumn[0]) + "." + tableAndColumn[1];
+    }
+
+    public void checkTableOrColumnFormat(String s) throws Exception {
+        if(s != null && !isTableOrColumnName(s)) {
+            syntaxError(ERR_WRONG_FORMAT_TABLE_OR_COLUMN_NAME, s);
+        }
+    }
+
+    public boolean isTableOrColumnName(String value) {
+        return TABLE_COLUMN_FORMAT.matcher(value).matches();
+    }
+
+    /**
+     * True if the value is a placeholder: '?' (positional) or ':name' (named).
+     */
+    public boolean isParameter(String value) {
+        return PARAMETER_FORMAT.matcher(value).matches();
+    }
+
+    /* Positional parameters are numbered in order of appearance in the statement ('?' becomes '?1', '?2', ...),
+    because the order in which functions create their clauses differs from the order of the tokens.
+    */
+    String numberParameter(String token) {
+        return "?".equals(token) ? "?" + ++positionalParameters : token;
+    }
+
+    /**
+     * Returns the value of a token: a parameter if the token is a placeholder, otherwise a literal.
+     */
+    public Value toValue(String token) {
+        if (!isParameter(token)) {
+            return new Literal(token);
+        }
+
+        return token.charAt(0) == ':' ? Parameter.named(token.substring(1)) : Parameter.positional(Integer.parseInt(token.substring(1)));
+    }
+
+    public boolean isNummeric(String s) {
+        return NUMMERIC_FORMAT.matcher(s).matches();
+    }
+}
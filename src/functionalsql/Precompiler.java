@@ -0,0 +1,287 @@
+package functionalsql;
+
+import functionalsql.ast.Parameter;
+import functionalsql.ast.Value;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Compiles .fs files at build time into Java classes with the SQL as constants, so statically known statements are
+ * not compiled at runtime and their errors fail the build.
+ *
+ * A .fs file contains named statements. A statement starts with 'name = statement' and continues on the following lines
+ * up to the next statement. Empty lines and lines starting with '#' are skipped, e.g.
+ *
+ * # Orders of a customer.
+ * customerOrders = customer join(orders)
+ *     filter(customer.id, :id)
+ *
+ * Every file becomes a class (customer_orders.fs -> CustomerOrders) with a constant per statement (CUSTOMER_ORDERS).
+ * Statements with placeholders are compiled as template: the SQL contains JDBC markers and the constant
+ * [NAME]_PARAMETERS lists the placeholders (':id' or '?1') in marker order.
+ *
+ * A relations file contains a relation per line: 'table1.column1 = table2.column2', or 'column1 = column2' for the
+ * default relation.
+ *
+ * Usage: Precompiler [-compiler class] [-relations file] [-package name] -output directory source...
+ * A source is a .fs file or a directory which is searched for .fs files.
+ */
+public final class Precompiler {
+    private final static Pattern STATEMENT = Pattern.compile("([a-zA-Z_][a-zA-Z0-9_]*)\\s*=(.*)");
+
+    private final static Pattern RELATION = Pattern.compile("(?:([^.\\s=]+)\\.)?([^.\\s=]+)\\s*=\\s*(?:([^.\\s=]+)\\.)?([^.\\s=]+)");
+
+    private final FunctionalSQLCompiler compiler;
+
+    public Precompiler(FunctionalSQLCompiler compiler) {
+        this.compiler = compiler;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String compilerClass = FunctionalSQLCompiler.class.getName(), packageName = "";
+        Path relations = null, output = null;
+        List<Path> sources = new ArrayList<>();
+
+        for (int idx = 0; idx < args.length; idx++) {
+            switch (args[idx]) {
+                case "-compiler":
+                    compilerClass = args[++idx];
+                    break;
+                case "-relations":
+                    relations = Paths.get(args[++idx]);
+                    break;
+                case "-package":
+                    packageName = args[++idx];
+                    break;
+                case "-output":
+                    output = Paths.get(args[++idx]);
+                    break;
+                default:
+                    sources.add(Paths.get(args[idx]));
+            }
+        }
+
+        if (output == null || sources.isEmpty()) {
+            throw new Exception("Usage: Precompiler [-compiler class] [-relations file] [-package name] -output directory source...");
+        }
+
+        FunctionalSQLCompiler compiler = (FunctionalSQLCompiler)Class.forName(compilerClass).getDeclaredConstructor().newInstance();
+
+        if (relations != null) {
+            addRelations(compiler, relations);
+        }
+
+        Precompiler precompiler = new Precompiler(compiler);
+
+        for (Path source : sources) {
+            List<Path> files;
+
+            try (Stream<Path> paths = Files.walk(source)) {
+                files = paths.filter(p -> p.toString().endsWith(".fs")).sorted().collect(Collectors.toList());
+            }
+
+            for (Path file : files) {
+                precompiler.generate(file, packageName, output);
+            }
+        }
+    }
+
+    /**
+     * Adds the relations of a relations file to the compiler.
+     */
+    public static void addRelations(FunctionalSQLCompiler compiler, Path file) throws Exception {
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+
+        for (int idx = 0; idx < lines.size(); idx++) {
+            String line = lines.get(idx).trim();
+
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            Matcher matcher = RELATION.matcher(line);
+
+            if (!matcher.matches() || (matcher.group(1) == null) != (matcher.group(3) == null)) {
+                throw new Exception(String.format("%s:%d: Wrong format relation: %s.", file, idx + 1, line));
+            }
+
+            if (matcher.group(1) == null) {
+                compiler.addDefaultRelation(matcher.group(2), matcher.group(4));
+            } else {
+                compiler.addRelation(matcher.group(1), matcher.group(2), matcher.group(3), matcher.group(4));
+            }
+        }
+    }
+
+    /**
+     * Compiles a .fs file and writes its class into the output directory (in the directory of the package).
+     */
+    public Path generate(Path file, String packageName, Path outputDirectory) throws Exception {
+        String className = className(file.getFileName().toString().replaceFirst("\\.fs$", ""));
+        String source = generate(packageName, className, file.toString(), Files.readAllLines(file, StandardCharsets.UTF_8));
+
+        Path directory = packageName.isEmpty() ? outputDirectory : outputDirectory.resolve(packageName.replace('.', '/'));
+        Path target = directory.resolve(className + ".java");
+
+        Files.createDirectories(directory);
+        Files.write(target, source.getBytes(StandardCharsets.UTF_8));
+
+        return target;
+    }
+
+    /**
+     * Compiles the lines of a .fs file into the source of a Java class. Errors are reported with the name of the file
+     * and the line of the statement.
+     */
+    public String generate(String packageName, String className, String fileName, List<String> lines) throws Exception {
+        StringBuilder out = new StringBuilder();
+
+        if (!packageName.isEmpty()) {
+            out.append("package ").append(packageName).append(";\n\n");
+        }
+
+        out.append("/**\n * Generated by functionalsql.Precompiler from ").append(fileName).append(". Do not edit.\n */\n");
+        out.append("public final class ").append(className).append(" {\n");
+
+        String name = null, statement = null;
+        int line = 0;
+
+        for (int idx = 0; idx <= lines.size(); idx++) {
+            String text = idx < lines.size() ? lines.get(idx).trim() : null;
+
+            if (text != null && (text.isEmpty() || text.startsWith("#"))) {
+                continue;
+            }
+
+            Matcher matcher = text != null ? STATEMENT.matcher(text) : null;
+
+            if (text != null && !matcher.matches()) {
+                if (statement == null) {
+                    throw new Exception(String.format("%s:%d: Expected 'name = statement' instead of: %s.", fileName, idx + 1, text));
+                }
+
+                statement += " " + text;
+                continue;
+            }
+
+            if (statement != null) {
+                generate(out, fileName, line, name, statement.trim());
+            }
+
+            if (text != null) {
+                name = matcher.group(1);
+                statement = matcher.group(2);
+                line = idx + 1;
+            }
+        }
+
+        out.append("\n    private ").append(className).append("() {\n    }\n}\n");
+
+        return out.toString();
+    }
+
+    private void generate(StringBuilder out, String fileName, int line, String name, String statement) throws Exception {
+        Template template;
+
+        try {
+            template = compiler.compileTemplate(statement);
+        } catch (CompileException e) {
+            throw new Exception(String.format("%s:%d: %s", fileName, line, e.getMessage()), e);
+        }
+
+        String constant = constantName(name);
+
+        out.append("\n    /**\n     * ").append(statement.replace("*/", "*&#47;")).append("\n     */\n");
+        out.append("    public static final String ").append(constant).append(" = ").append(quote(template.getSql())).append(";\n");
+
+        if (template.getMarkers().isEmpty()) {
+            return;
+        }
+
+        List<String> parameters = new ArrayList<>();
+
+        for (Value marker : template.getMarkers()) {
+            if (!(marker instanceof Parameter)) {
+                throw new Exception(String.format("%s:%d: Only placeholders can be precompiled, disable parameterizeLiterals and arrayBinding.", fileName, line));
+            }
+
+            parameters.add(quote(marker.toString()));
+        }
+
+        out.append("\n    public static final java.util.List<String> ").append(constant).append("_PARAMETERS = ");
+        out.append("java.util.Collections.unmodifiableList(java.util.Arrays.asList(").append(String.join(", ", parameters)).append("));\n");
+    }
+
+    /* customer_orders -> CustomerOrders
+    */
+    static String className(String name) {
+        StringBuilder className = new StringBuilder();
+        boolean upper = true;
+
+        for (char c : name.toCharArray()) {
+            if (c == '_' || !Character.isJavaIdentifierPart(c)) {
+                upper = true;
+            } else {
+                className.append(upper ? Character.toUpperCase(c) : c);
+                upper = false;
+            }
+        }
+
+        return className.toString();
+    }
+
+    /* customerOrders -> CUSTOMER_ORDERS
+    */
+    static String constantName(String name) {
+        StringBuilder constant = new StringBuilder();
+
+        for (int idx = 0; idx < name.length(); idx++) {
+            char c = name.charAt(idx);
+
+            if (idx > 0 && Character.isUpperCase(c) && Character.isLowerCase(name.charAt(idx - 1))) {
+                constant.append('_');
+            }
+
+            constant.append(Character.toUpperCase(c));
+        }
+
+        return constant.toString();
+    }
+
+    private static String quote(String text) {
+        StringBuilder quoted = new StringBuilder("\"");
+
+        for (char c : text.toCharArray()) {
+            switch (c) {
+                case '"':
+                    quoted.append("\\\"");
+                    break;
+                case '\\':
+                    quoted.append("\\\\");
+                    break;
+                case '\n':
+                    quoted.append("\\n");
+                    break;
+                case '\r':
+                    quoted.append("\\r");
+                    break;
+                case '\t':
+                    quoted.append("\\t");
+                    break;
+                default:
+                    quoted.append(c);
+            }
+        }
+
+        return quoted.append('"').toString();
+    }
+}
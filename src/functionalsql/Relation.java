@@ -20,37 +20,52 @@ public class Relation {
         }
     }
 
+    /* Tables of a default relation are stored as empty strings.
+    */
     public boolean isDefault() {
-        return table1 == null && table2 == null && column1.equals(column2);
+        return table1.length() == 0 && table2.length() == 0 && column1.equals(column2);
     }
 
     public boolean matches(String table1, String column1, String table2) {
-        if (toString().indexOf(table1) >= 0) {
-            /* Mapping could be correct: check it precisly.
-            Note: check both ways because we have no knowlegde of how the mapping was added to the compiler
-            E.g. (table1|column1 , table2|column2) OR (table2|column2 , table1|column1)
+        /* Note: check both ways because we have no knowlegde of how the mapping was added to the compiler
+        E.g. (table1|column1 , table2|column2) OR (table2|column2 , table1|column1)
+        */
+        if ((table1.equals(this.table1) && table2.equals(this.table2)) || (table1.equals(this.table2) && table2.equals(this.table1))) {
+            /* User can have only the drive column programmed and not the join column. If so, this column should be mentioned
+            in the relation.
             */
-            if ((table1.equals(this.table1) && table2.equals(this.table2)) || (table1.equals(this.table2) && table2.equals(this.table1))) {
-                /* User can have only the drive column programmed and not the join column. If so, this column should be mentioned
-                in the relation.
-                */
-                if (column1 != null) {
-                    if (table1.equals(this.table1) && column1.equals(this.column1)) {
-                        return true;
-                    }
-
-                    if (table1.equals(this.table2) && column1.equals(this.column2)) {
-                        return true;
-                    }
-                } else {
+            if (column1 != null) {
+                if (table1.equals(this.table1) && column1.equals(this.column1)) {
+                    return true;
+                }
+
+                if (table1.equals(this.table2) && column1.equals(this.column2)) {
                     return true;
                 }
+            } else {
+                return true;
             }
         }
 
         return false;
     }
 
+    public String getTable1() {
+        return table1;
+    }
+
+    public String getColumn1() {
+        return column1;
+    }
+
+    public String getTable2() {
+        return table2;
+    }
+
+    public String getColumn2() {
+        return column2;
+    }
+
     public String getColumn(String table) {
         /* Mapping could be the default relation.
         */
@@ -87,7 +102,7 @@ public class Relation {
     }
 
     public int hashCode() {
-        return table1.hashCode() + column1.hashCode() + table2.hashCode() + column2.hashCode();
+        return ((table1.hashCode() * 31 + column1.hashCode()) * 31 + table2.hashCode()) * 31 + column2.hashCode();
     }
 
     public String toString() {
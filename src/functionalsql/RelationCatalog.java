@@ -0,0 +1,73 @@
+package functionalsql;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hash index over the relations of a configuration.
+ *
+ * Relations are indexed on both of their tables: table -> other table -> relations between the two. For every
+ * table pair the first added relation and the first added relation per column are kept, so lookups return the
+ * same relation as a scan of the relations in order of addition would.
+ */
+final class RelationCatalog {
+    private final Map<String, Map<String, TablePair>> tablePairs = new HashMap<>();
+
+    private Relation defaultRelation;
+
+    RelationCatalog(Collection<Relation> relations) {
+        for (Relation relation : relations) {
+            if (relation.isDefault()) {
+                defaultRelation = relation;
+            } else {
+                index(relation.getTable1(), relation.getColumn1(), relation.getTable2(), relation);
+                index(relation.getTable2(), relation.getColumn2(), relation.getTable1(), relation);
+            }
+        }
+    }
+
+    private void index(String table, String column, String otherTable, Relation relation) {
+        TablePair pair = tablePairs.computeIfAbsent(table, t -> new HashMap<>()).computeIfAbsent(otherTable, t -> new TablePair(relation));
+        pair.byColumn.putIfAbsent(column, relation);
+    }
+
+    Relation getRelation(String table1, String column1, String table2) {
+        Map<String, TablePair> pairs = tablePairs.get(table1);
+        TablePair pair = pairs != null ? pairs.get(table2) : null;
+
+        if (pair != null) {
+            /* User can have only the drive column programmed and not the join column. If so, this column should be mentioned
+            in the relation.
+            */
+            Relation relation = column1 != null ? pair.byColumn.get(column1) : pair.first;
+
+            if (relation != null) {
+                return relation;
+            }
+        }
+
+        /* Found no relation. Check if we can return the default relation. RULE: Compiler does not override programmed columns names.
+        */
+        if (defaultRelation != null) {
+            if (column1 != null) {
+                if (defaultRelation.defaultRelationMatches(column1)) {
+                    return defaultRelation;
+                }
+            } else {
+                return defaultRelation;
+            }
+        }
+
+        return null;
+    }
+
+    private static class TablePair {
+        final Relation first;
+        final Map<String, Relation> byColumn = new HashMap<>(4);
+
+        TablePair(Relation first) {
+            this.first = first;
+        }
+    }
+}
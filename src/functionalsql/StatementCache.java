@@ -0,0 +1,230 @@
+package functionalsql;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of compiled statements, keyed by the FS statement and the version of the compiler configuration.
+ *
+ * Lookups are lock free. Inserting an entry takes a lock and, when the cache is full, evicts the least recently used
+ * or least frequently used entry of a random sample of the entries, so an insert does not depend on the size of the
+ * cache. The frequencies of LFU are halved after every 10 * maximumSize hits, so entries which are no longer used
+ * lose their frequency and can be evicted.
+ *
+ * A cache is attached to a single compiler with FunctionalSQLCompiler.setStatementCache() and is cleared whenever
+ * the configuration of that compiler changes.
+ */
+public class StatementCache {
+
+    public enum Eviction {
+        LRU, LFU;
+    }
+
+    /* Number of entries of which the victim is chosen. A smaller cache is searched completely.
+    */
+    private final static int SAMPLES = 8;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /* The statements of the entries, to draw a sample from. Entry.index is the position of its statement.
+    */
+    private final List<String> statements = new ArrayList<>();
+
+    private final int maximumSize;
+
+    private final long maximumWeight;
+
+    private final Eviction eviction;
+
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder(), evictions = new LongAdder();
+
+    private long weight = 0;
+
+    /* The frequencies of the entries are halved once per epoch, which lasts 10 * maximumSize hits. An entry is aged
+    when it is used or compared (see frequency).
+    */
+    private volatile int epoch = 0;
+
+    private long epochStart = 0;
+
+    public StatementCache(int maximumSize, Eviction eviction) {
+        this(maximumSize, Long.MAX_VALUE, eviction);
+    }
+
+    /**
+     * @param maximumSize Maximum number of statements in the cache.
+     * @param maximumWeight Maximum number of characters (FS statement plus SQL) held by the cache.
+     * @param eviction Eviction policy when one of the limits is reached.
+     */
+    public StatementCache(int maximumSize, long maximumWeight, Eviction eviction) {
+        if (maximumSize < 1 || maximumWeight < 1) {
+            throw new IllegalArgumentException("Size and weight of cache should be greater than zero.");
+        }
+
+        this.maximumSize = maximumSize;
+        this.maximumWeight = maximumWeight;
+        this.eviction = eviction;
+    }
+
+    /**
+     * Returns the compiled SQL of a statement or null when the statement is not cached for this configuration version.
+     */
+    public String get(String statement, long version) {
+        Entry entry = entries.get(statement);
+
+        if (entry == null || entry.version != version) {
+            misses.increment();
+            return null;
+        }
+
+        /* Racy updates are accepted: the access information is only used to select a victim.
+        */
+        entry.lastAccess = System.nanoTime();
+
+        if (eviction == Eviction.LFU) {
+            int epoch = this.epoch;
+            entry.frequency = frequency(entry, epoch) + 1;
+            entry.epoch = epoch;
+        }
+
+        hits.increment();
+        return entry.sql;
+    }
+
+    public synchronized void put(String statement, long version, String sql) {
+        Entry entry = new Entry(version, sql, statement.length() + sql.length());
+
+        if (entry.weight > maximumWeight) {
+            return;
+        }
+
+        age();
+        entry.epoch = epoch;
+
+        Entry previous = entries.put(statement, entry);
+
+        if (previous != null) {
+            weight -= previous.weight;
+            entry.index = previous.index;
+        } else {
+            entry.index = statements.size();
+            statements.add(statement);
+        }
+
+        weight += entry.weight;
+
+        while (entries.size() > maximumSize || weight > maximumWeight) {
+            evict(statement);
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        statements.clear();
+        weight = 0;
+    }
+
+    private void age() {
+        long window = 10L * maximumSize, epochs = (hits.sum() - epochStart) / window;
+
+        if (epochs > 0) {
+            epoch += (int)epochs;
+            epochStart += epochs * window;
+        }
+    }
+
+    private void evict(String newStatement) {
+        String victim = null;
+        Entry victimEntry = null;
+
+        int size = statements.size(), samples = Math.min(size, SAMPLES);
+
+        /* Only the new statement can not be evicted, which fits by itself (checked in put), so there is another entry.
+        */
+        for (int i = 0; i < samples || victim == null; i++) {
+            String candidate = statements.get(size > SAMPLES ? ThreadLocalRandom.current().nextInt(size) : i);
+
+            if (candidate.equals(newStatement)) {
+                continue;
+            }
+
+            Entry entry = entries.get(candidate);
+
+            if (victim == null || isBetterVictim(entry, victimEntry)) {
+                victim = candidate;
+                victimEntry = entry;
+            }
+        }
+
+        entries.remove(victim);
+        weight -= victimEntry.weight;
+        evictions.increment();
+
+        /* The last statement takes the place of the victim.
+        */
+        String last = statements.remove(size - 1);
+
+        if (victimEntry.index < size - 1) {
+            statements.set(victimEntry.index, last);
+            entries.get(last).index = victimEntry.index;
+        }
+    }
+
+    private boolean isBetterVictim(Entry candidate, Entry victim) {
+        if (eviction == Eviction.LFU) {
+            int epoch = this.epoch, candidateFrequency = frequency(candidate, epoch), victimFrequency = frequency(victim, epoch);
+
+            if (candidateFrequency != victimFrequency) {
+                return candidateFrequency < victimFrequency;
+            }
+        }
+
+        return candidate.lastAccess < victim.lastAccess;
+    }
+
+    /* The frequency of the entry, halved for every epoch since it was last used.
+    */
+    private static int frequency(Entry entry, int epoch) {
+        int age = epoch - entry.epoch;
+        return age >= 32 ? 0 : entry.frequency >>> age;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    private static class Entry {
+        final long version;
+        final String sql;
+        final long weight;
+        volatile long lastAccess = System.nanoTime();
+        volatile int frequency = 0, epoch;
+        int index;
+
+        Entry(long version, String sql, long weight) {
+            this.version = version;
+            this.sql = sql;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package functionalsql;
+
+import functionalsql.ast.ArrayValue;
+import functionalsql.ast.Dialect;
+import functionalsql.ast.Literal;
+import functionalsql.ast.Parameter;
+import functionalsql.ast.Query;
+import functionalsql.ast.SqlRenderer;
+import functionalsql.ast.Value;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled FS statement with placeholders.
+ *
+ * The SQL contains a JDBC marker ('?') for every placeholder and, if the compiler parameterizes literals, for every
+ * literal. Because the compiler orders the clauses of a query, the order of the markers can differ from the order of
+ * the placeholders in the FS statement. The bind methods take care of this: they return the values in marker order,
+ * ready to be set on a PreparedStatement. Markers of literals are bound to the value of the literal and markers of
+ * value lists which are bound as an array (see FunctionalSQLCompiler.setArrayBinding) to an Object[].
+ *
+ * A template is immutable and can be shared between threads.
+ */
+public final class Template {
+    private final Query query;
+    private final String sql;
+    private final List<Value> markers;
+    private final List<Parameter> parameters = new ArrayList<>();
+
+    Template(Query query, Dialect dialect, boolean parameterizeLiterals, boolean arrayBinding) {
+        StringBuilder out = new StringBuilder(64);
+        List<Value> markers = new ArrayList<>();
+
+        try {
+            new SqlRenderer(dialect, markers, parameterizeLiterals, arrayBinding).render(query, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // A StringBuilder does not throw.
+        }
+
+        for (Value marker : markers) {
+            if (marker instanceof Parameter) {
+                parameters.add((Parameter)marker);
+            } else if (marker instanceof ArrayValue) {
+                for (Value element : ((ArrayValue)marker).getElements()) {
+                    if (element instanceof Parameter) {
+                        parameters.add((Parameter)element);
+                    }
+                }
+            }
+        }
+
+        this.query = query;
+        this.sql = out.toString();
+        this.markers = Collections.unmodifiableList(markers);
+    }
+
+    public Query getQuery() {
+        return query;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * Values (parameters, parameterized literals and arrays) in the order of their markers in the SQL.
+     */
+    public List<Value> getMarkers() {
+        return markers;
+    }
+
+    /**
+     * Parameters in the order of their markers in the SQL. A placeholder which is used twice has two markers.
+     */
+    public List<Parameter> getParameters() {
+        return Collections.unmodifiableList(parameters);
+    }
+
+    /**
+     * Binds the values of positional placeholders. The first value belongs to the first '?' in the FS statement.
+     */
+    public List<Object> bind(Object... values) {
+        return bind(Collections.emptyMap(), values);
+    }
+
+    /**
+     * Binds the values of named and positional placeholders.
+     */
+    public List<Object> bind(Map<String, ?> namedValues, Object... values) {
+        List<Object> binds = new ArrayList<>(markers.size());
+
+        for (Value marker : markers) {
+            if (marker instanceof ArrayValue) {
+                List<Value> elements = ((ArrayValue)marker).getElements();
+                Object[] array = new Object[elements.size()];
+
+                for (int idx = 0; idx < array.length; idx++) {
+                    array[idx] = bind(elements.get(idx), namedValues, values);
+                }
+
+                binds.add(array);
+            } else {
+                binds.add(bind(marker, namedValues, values));
+            }
+        }
+
+        return binds;
+    }
+
+    private static Object bind(Value value, Map<String, ?> namedValues, Object[] values) {
+        if (value instanceof Literal) {
+            return ((Literal)value).getValue();
+        }
+
+        Parameter parameter = (Parameter)value;
+
+        if (parameter.isNamed()) {
+            if (!namedValues.containsKey(parameter.getName())) {
+                throw new IllegalArgumentException(String.format("No value for parameter (%s).", parameter));
+            }
+
+            return namedValues.get(parameter.getName());
+        }
+
+        if (parameter.getPosition() < 1 || parameter.getPosition() > values.length) {
+            throw new IllegalArgumentException(String.format("No value for parameter (%s).", parameter));
+        }
+
+        return values[parameter.getPosition() - 1];
+    }
+
+    public String toString() {
+        return sql;
+    }
+}
@@ -0,0 +1,185 @@
+package functionalsql;
+
+/**
+ * Cursor based tokenizer of an FS statement.
+ *
+ * The stream does not copy the statement into separate tokens. Each call of next() scans the next token and
+ * remembers its kind and its slice (offset and length) of the statement. A String is only created when the
+ * text of a word or a quoted literal is requested.
+ */
+final class TokenStream {
+
+    enum Kind {
+        WORD, LITERAL, OPENING_BRACKET, CLOSING_BRACKET, COMMA, END;
+    }
+
+    private final char[] chars;
+
+    private int pointer = 0;
+
+    private Kind kind = null;
+
+    private int offset = 0, length = 0, count = 0, depth = 0;
+
+    TokenStream(String statement) {
+        this.chars = statement.toCharArray();
+    }
+
+    /**
+     * Scans all tokens of the statement once, without moving the cursor, and returns the time it took. Used when
+     * compile metrics are enabled, so the tokens themselves are not timed one by one.
+     */
+    long measure() {
+        int pointer = this.pointer, offset = this.offset, length = this.length, count = this.count, depth = this.depth;
+        Kind kind = this.kind;
+
+        this.pointer = 0;
+
+        long start = System.nanoTime();
+
+        while (next() != Kind.END) {
+        }
+
+        long nanos = System.nanoTime() - start;
+
+        restore(pointer, offset, length, count, depth, kind);
+
+        return nanos;
+    }
+
+    /**
+     * Moves the cursor to the next token and returns its kind. At the end of the statement END is returned.
+     */
+    Kind next() {
+        /* Process white spaces.
+        */
+        for (; pointer < chars.length && isWhiteSpace(chars[pointer]); pointer++) {
+        }
+
+        offset = pointer;
+
+        if (pointer == chars.length) {
+            length = 0;
+            return kind = Kind.END;
+        }
+
+        count++;
+
+        switch (chars[pointer]) {
+            case '(': kind = Kind.OPENING_BRACKET; depth++; break;
+            case ')': kind = Kind.CLOSING_BRACKET; depth--; break;
+            case ',': kind = Kind.COMMA; break;
+            case '\'':
+                /* A quoted literal includes the quotes and every character between them.
+                */
+                for (pointer++; pointer < chars.length && !isQuote(chars[pointer]); pointer++) {
+                }
+
+                if (pointer < chars.length) {
+                    pointer++;
+                }
+
+                length = pointer - offset;
+                return kind = Kind.LITERAL;
+            default:
+                for (;
+                     pointer < chars.length &&
+                             !isSpecialChar(chars[pointer]) &&
+                             !isWhiteSpace(chars[pointer]) &&
+                             !isQuote(chars[pointer]); pointer++) {
+                }
+
+                length = pointer - offset;
+                return kind = Kind.WORD;
+        }
+
+        pointer++;
+        length = 1;
+        return kind;
+    }
+
+    Kind kind() {
+        return kind;
+    }
+
+    /**
+     * Returns the kind of the next token without moving the cursor.
+     */
+    Kind peek() {
+        int pointer = this.pointer, offset = this.offset, length = this.length, count = this.count, depth = this.depth;
+        Kind kind = this.kind, next = next();
+
+        restore(pointer, offset, length, count, depth, kind);
+
+        return next;
+    }
+
+    private void restore(int pointer, int offset, int length, int count, int depth, Kind kind) {
+        this.pointer = pointer;
+        this.offset = offset;
+        this.length = length;
+        this.count = count;
+        this.depth = depth;
+        this.kind = kind;
+    }
+
+    /**
+     * Number of brackets which are opened and not yet closed.
+     */
+    int depth() {
+        return depth;
+    }
+
+    /**
+     * Returns the text of the current token. Special characters are returned as constants, words and literals are
+     * copied out of the statement.
+     */
+    String text() {
+        switch (kind) {
+            case OPENING_BRACKET: return "(";
+            case CLOSING_BRACKET: return ")";
+            case COMMA: return ",";
+            case END: return null;
+            default: return new String(chars, offset, length);
+        }
+    }
+
+    /**
+     * Returns false when the current token is a literal of which the end quote is missing.
+     */
+    boolean isTerminated() {
+        return kind != Kind.LITERAL || (length > 1 && isQuote(chars[offset + length - 1]));
+    }
+
+    /**
+     * Position of the current token in the statement.
+     */
+    int offset() {
+        return offset;
+    }
+
+    int length() {
+        return length;
+    }
+
+    /**
+     * Number of tokens consumed so far.
+     */
+    int count() {
+        return count;
+    }
+
+    private boolean isSpecialChar(char c) {
+        return c == '(' || c == ')' || c == ',';
+    }
+
+    /* Quote is also a special char, but requires unique processing.
+    */
+    private boolean isQuote(char c) {
+        return c == '\'';
+    }
+
+    private boolean isWhiteSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n';
+    }
+}
@@ -0,0 +1,19 @@
+package functionalsql;
+
+/**
+ * How a filter renders a value list which is longer than the maximum list size of the compiler.
+ *
+ * Example for 'a filter(v, 1, 2, 3)' with a maximum list size of 2:
+ *
+ *   IN_LIST    -> v IN ( 1, 2, 3 ) (the maximum is ignored)
+ *   CHUNKED_IN -> ( v IN ( 1, 2 ) OR v IN ( 3 ) )
+ *   VALUES     -> v IN (SELECT c FROM (VALUES (1), (2), (3)) AS v(c))
+ *
+ * A notfilter combines its chunks with AND and uses NOT IN.
+ *
+ * The row constructor of VALUES depends on the dialect: MySQL uses ROW(1), Oracle selects every value from DUAL
+ * (v IN (SELECT 1 FROM DUAL UNION ALL SELECT 2 FROM DUAL ...)).
+ */
+public enum ValueListStrategy {
+    IN_LIST, CHUNKED_IN, VALUES
+}
@@ -0,0 +1,60 @@
+package functionalsql.ast;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Renames the aliases of a query.
+ */
+public final class Aliases {
+    private final static Pattern ALIAS = Pattern.compile("t([0-9]+)");
+
+    private Aliases() {
+    }
+
+    /**
+     * Returns the query with every alias tN of its tables renamed to t(N + offset), also in its columns and in its
+     * correlated subqueries (exists). Nested queries in FROM and IN have their own aliases and are not changed. Used to
+     * nest a query in a query which already uses its aliases.
+     */
+    public static Query shift(Query query, int offset) {
+        Map<String, String> aliases = new HashMap<>();
+        collect(query, offset, aliases);
+
+        return Columns.rename(query, aliases);
+    }
+
+    private static void collect(Query query, int offset, Map<String, String> aliases) {
+        List<TableReference> tables = new ArrayList<>(query.getFrom());
+
+        for (JoinClause join : query.getJoins()) {
+            tables.add(join.getTable());
+        }
+
+        for (TableReference table : tables) {
+            Matcher matcher = ALIAS.matcher(table.getAlias());
+
+            if (matcher.matches()) {
+                aliases.put(table.getAlias(), "t" + (Integer.parseInt(matcher.group(1)) + offset));
+            }
+        }
+
+        for (Predicate predicate : query.getWhere()) {
+            collect(predicate, offset, aliases);
+        }
+    }
+
+    private static void collect(Predicate predicate, int offset, Map<String, String> aliases) {
+        if (predicate instanceof Exists) {
+            collect(((Exists)predicate).getQuery(), offset, aliases);
+        } else if (predicate instanceof Junction) {
+            for (Predicate p : ((Junction)predicate).getPredicates()) {
+                collect(p, offset, aliases);
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package functionalsql.ast;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Value list which is bound as one array parameter (see Dialect.supportsArrayBinding). The elements are literals
+ * and parameters.
+ */
+public final class ArrayValue extends Value {
+    private final List<Value> elements;
+
+    public ArrayValue(List<? extends Value> elements) {
+        this.elements = Collections.unmodifiableList(new ArrayList<>(elements));
+    }
+
+    public List<Value> getElements() {
+        return elements;
+    }
+
+    public boolean equals(Object other) {
+        return other instanceof ArrayValue && elements.equals(((ArrayValue)other).elements);
+    }
+
+    public int hashCode() {
+        return elements.hashCode();
+    }
+
+    public String toString() {
+        return elements.toString();
+    }
+}
@@ -0,0 +1,41 @@
+package functionalsql.ast;
+
+import java.util.Objects;
+
+/**
+ * Comparison of two columns, e.g. the join condition 't0.id = t1.id'.
+ */
+public final class ColumnComparison extends Predicate {
+    private final String left, operator, right;
+
+    public ColumnComparison(String left, String operator, String right) {
+        this.left = left;
+        this.operator = operator;
+        this.right = right;
+    }
+
+    public String getLeft() {
+        return left;
+    }
+
+    public String getOperator() {
+        return operator;
+    }
+
+    public String getRight() {
+        return right;
+    }
+
+    public boolean equals(Object other) {
+        if (!(other instanceof ColumnComparison)) {
+            return false;
+        }
+
+        ColumnComparison c = (ColumnComparison)other;
+        return left.equals(c.left) && operator.equals(c.operator) && right.equals(c.right);
+    }
+
+    public int hashCode() {
+        return Objects.hash(left, operator, right);
+    }
+}
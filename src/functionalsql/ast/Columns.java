@@ -0,0 +1,247 @@
+package functionalsql.ast;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+import java.util.regex.Pattern;
+
+/**
+ * Helpers for rewrites of the columns and nested queries of predicates.
+ */
+final class Columns {
+    private final static Pattern COLUMN = Pattern.compile("[a-zA-Z_][a-zA-Z0-9_]*");
+
+    private Columns() {
+    }
+
+    /* Returns the predicate with every column (and column in a row or join condition) replaced by column.apply. Returns
+    the same predicate if nothing changed. Nested queries, raw predicates and the columns in correlated subqueries are
+    not changed, use isOpaque to check for the latter. Junctions are mapped with an explicit stack, so deeply nested
+    ors and ands do not overflow the thread stack.
+    */
+    static Predicate map(Predicate predicate, UnaryOperator<String> column) {
+        if (!(predicate instanceof Junction)) {
+            return mapLeaf(predicate, column);
+        }
+
+        Deque<JunctionFrame> stack = new ArrayDeque<>();
+        stack.push(new JunctionFrame((Junction)predicate));
+
+        while (true) {
+            JunctionFrame frame = stack.peek();
+            List<Predicate> predicates = frame.junction.getPredicates();
+
+            if (frame.mapped.size() < predicates.size()) {
+                Predicate p = predicates.get(frame.mapped.size());
+
+                if (p instanceof Junction) {
+                    stack.push(new JunctionFrame((Junction)p));
+                } else {
+                    Predicate mapped = mapLeaf(p, column);
+                    frame.changed |= mapped != p;
+                    frame.mapped.add(mapped);
+                }
+
+                continue;
+            }
+
+            stack.pop();
+
+            Predicate mapped = frame.changed ? new Junction(frame.junction.isOr(), frame.mapped) : frame.junction;
+
+            if (stack.isEmpty()) {
+                return mapped;
+            }
+
+            stack.peek().changed |= frame.changed;
+            stack.peek().mapped.add(mapped);
+        }
+    }
+
+    private static Predicate mapLeaf(Predicate predicate, UnaryOperator<String> column) {
+        if (predicate instanceof Comparison) {
+            Comparison c = (Comparison)predicate;
+            String mapped = column.apply(c.getColumn());
+            return mapped.equals(c.getColumn()) ? c : new Comparison(mapped, c.getOperator(), c.getValue());
+        } else if (predicate instanceof ColumnComparison) {
+            ColumnComparison c = (ColumnComparison)predicate;
+            String left = column.apply(c.getLeft()), right = column.apply(c.getRight());
+            return left.equals(c.getLeft()) && right.equals(c.getRight()) ? c : new ColumnComparison(left, c.getOperator(), right);
+        } else if (predicate instanceof InList) {
+            InList in = (InList)predicate;
+            String mapped = column.apply(in.getColumn());
+            return mapped.equals(in.getColumn()) ? in : new InList(mapped, in.getValues(), in.isNegated());
+        } else if (predicate instanceof InValues) {
+            InValues in = (InValues)predicate;
+            String mapped = column.apply(in.getColumn());
+            return mapped.equals(in.getColumn()) ? in : new InValues(mapped, in.getValues(), in.isNegated());
+        } else if (predicate instanceof IsNull) {
+            IsNull isNull = (IsNull)predicate;
+            String mapped = column.apply(isNull.getColumn());
+            return mapped.equals(isNull.getColumn()) ? isNull : new IsNull(mapped, isNull.isNegated());
+        } else if (predicate instanceof PatternMatch) {
+            PatternMatch match = (PatternMatch)predicate;
+            String mapped = column.apply(match.getColumn());
+            return mapped.equals(match.getColumn()) ? match : new PatternMatch(mapped, match.getPattern());
+        } else if (predicate instanceof InSubquery) {
+            InSubquery in = (InSubquery)predicate;
+            String mapped = column.apply(in.getColumn());
+            return mapped.equals(in.getColumn()) ? in : new InSubquery(mapped, in.getQuery());
+        } else if (predicate instanceof RowComparison) {
+            RowComparison row = (RowComparison)predicate;
+            List<String> columns = map(row.getColumns(), column);
+            return columns == row.getColumns() ? row : new RowComparison(columns, row.getOperator(), row.getValues());
+        } else if (predicate instanceof Exists || predicate instanceof RawPredicate) {
+            return predicate;
+        }
+
+        throw new IllegalArgumentException("Unknown predicate: " + predicate.getClass().getName());
+    }
+
+    /* Returns the same list if no column changed.
+    */
+    static List<String> map(List<String> columns, UnaryOperator<String> column) {
+        List<String> mapped = new ArrayList<>(columns.size());
+        boolean changed = false;
+
+        for (String c : columns) {
+            String m = column.apply(c);
+            changed |= !m.equals(c);
+            mapped.add(m);
+        }
+
+        return changed ? mapped : columns;
+    }
+
+    /* True if the predicate contains columns which map can not rewrite: raw SQL or a correlated subquery.
+    */
+    static boolean isOpaque(Predicate predicate) {
+        Deque<Predicate> stack = new ArrayDeque<>();
+        stack.push(predicate);
+
+        while (!stack.isEmpty()) {
+            Predicate p = stack.pop();
+
+            if (p instanceof RawPredicate || p instanceof Exists) {
+                return true;
+            } else if (p instanceof Junction) {
+                for (Predicate child : ((Junction)p).getPredicates()) {
+                    stack.push(child);
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /* Returns the query with its tables and the columns of its clauses renamed according to aliases (old -> new). The
+    aliases of correlated subqueries (exists) are renamed too, because they can refer to the tables of the query.
+    */
+    static Query rename(Query query, Map<String, String> aliases) {
+        return Nodes.rewrite(query, q -> renameClauses(q, aliases), true);
+    }
+
+    /* Renames the tables and columns of the query itself, its correlated subqueries are renamed by rename.
+    */
+    private static Query renameClauses(Query query, Map<String, String> aliases) {
+        UnaryOperator<String> column = c -> rename(c, aliases, null);
+
+        List<TableReference> from = new ArrayList<>(query.getFrom().size());
+
+        for (TableReference table : query.getFrom()) {
+            from.add(rename(table, aliases));
+        }
+
+        List<JoinClause> joins = new ArrayList<>(query.getJoins().size());
+
+        for (JoinClause join : query.getJoins()) {
+            joins.add(new JoinClause(join.getType(), rename(join.getTable(), aliases), map(join.getCondition(), column)));
+        }
+
+        List<Predicate> where = new ArrayList<>(query.getWhere().size());
+
+        for (Predicate predicate : query.getWhere()) {
+            where.add(map(predicate, column));
+        }
+
+        OrderBy orderBy = query.getOrderBy();
+
+        if (orderBy != null) {
+            orderBy = new OrderBy(map(orderBy.getColumns(), column), orderBy.isAscending(), orderBy.isDirectionPerColumn());
+        }
+
+        return query.toBuilder()
+                .select(map(query.getSelect(), column))
+                .from(from)
+                .joins(joins)
+                .where(where)
+                .groupBy(map(query.getGroupBy(), column))
+                .orderBy(orderBy)
+                .build();
+    }
+
+    private static TableReference rename(TableReference table, Map<String, String> aliases) {
+        String alias = aliases.getOrDefault(table.getAlias(), table.getAlias());
+
+        if (alias.equals(table.getAlias())) {
+            return table;
+        }
+
+        return table.isSubquery() ? new TableReference(table.getSubquery(), alias) : new TableReference(table.getTable(), alias);
+    }
+
+    /* Replaces the aliases in a column or expression (e.g. 'SUM(t1.v)'). An unqualified column gets the alias single,
+    if not null.
+    */
+    static String rename(String column, Map<String, String> aliases, String single) {
+        if (single != null && COLUMN.matcher(column).matches()) {
+            return single + "." + column;
+        }
+
+        StringBuilder renamed = null;
+        int last = 0;
+
+        for (int idx = column.indexOf('.'); idx > 0; idx = column.indexOf('.', idx + 1)) {
+            int start = idx;
+
+            while (start > 0 && Character.isLetterOrDigit(column.charAt(start - 1))) {
+                start--;
+            }
+
+            if (start > 0 && (column.charAt(start - 1) == '_' || column.charAt(start - 1) == '.')) {
+                continue;
+            }
+
+            String alias = aliases.get(column.substring(start, idx));
+
+            if (alias != null) {
+                if (renamed == null) {
+                    renamed = new StringBuilder(column.length() + 4);
+                }
+
+                renamed.append(column, last, start).append(alias);
+                last = idx;
+            }
+        }
+
+        return renamed == null ? column : renamed.append(column, last, column.length()).toString();
+    }
+
+    static boolean isUnqualified(String column) {
+        return COLUMN.matcher(column).matches();
+    }
+
+    private static class JunctionFrame {
+        final Junction junction;
+        final List<Predicate> mapped;
+        boolean changed;
+
+        JunctionFrame(Junction junction) {
+            this.junction = junction;
+            this.mapped = new ArrayList<>(junction.getPredicates().size());
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package functionalsql.ast;
+
+import java.util.Objects;
+
+/**
+ * Comparison of a column with a value, e.g. 't0.v >= 1'.
+ */
+public final class Comparison extends Predicate {
+    private final String column, operator;
+    private final Value value;
+
+    public Comparison(String column, String operator, Value value) {
+        this.column = column;
+        this.operator = operator;
+        this.value = value;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    public String getOperator() {
+        return operator;
+    }
+
+    public Value getValue() {
+        return value;
+    }
+
+    public boolean equals(Object other) {
+        if (!(other instanceof Comparison)) {
+            return false;
+        }
+
+        Comparison c = (Comparison)other;
+        return column.equals(c.column) && operator.equals(c.operator) && value.equals(c.value);
+    }
+
+    public int hashCode() {
+        return Objects.hash(column, operator, value);
+    }
+}
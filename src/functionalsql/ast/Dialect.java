@@ -0,0 +1,23 @@
+package functionalsql.ast;
+
+/**
+ * SQL dialect of the database which executes the generated SQL. The dialect only affects constructs which differ
+ * between databases; everything else is rendered the same for all dialects.
+ */
+public enum Dialect {
+    ANSI, POSTGRESQL, H2, HSQLDB, MYSQL, ORACLE, SQLSERVER;
+
+    /**
+     * True if a value list can be bound as one array parameter, e.g. 'v = ANY(?)'.
+     */
+    public boolean supportsArrayBinding() {
+        return this == POSTGRESQL || this == H2 || this == HSQLDB;
+    }
+
+    /**
+     * True if rows can be compared, e.g. '(a, b) > (1, 2)'.
+     */
+    public boolean supportsRowValues() {
+        return this != ORACLE && this != SQLSERVER;
+    }
+}
@@ -0,0 +1,35 @@
+package functionalsql.ast;
+
+import java.util.Objects;
+
+/**
+ * Correlated subquery, e.g. 'EXISTS (SELECT 1 FROM b t1 WHERE t1.a_id = t0.id)'. The subquery refers to the aliases of
+ * the query which contains the predicate.
+ */
+public final class Exists extends Predicate {
+    private final Query query;
+    private final boolean negated;
+    private final int hash;
+
+    public Exists(Query query, boolean negated) {
+        this.query = query;
+        this.negated = negated;
+        this.hash = Objects.hash(query, negated);
+    }
+
+    public Query getQuery() {
+        return query;
+    }
+
+    public boolean isNegated() {
+        return negated;
+    }
+
+    public boolean equals(Object other) {
+        return other instanceof Exists && Nodes.equal(this, other);
+    }
+
+    public int hashCode() {
+        return hash;
+    }
+}
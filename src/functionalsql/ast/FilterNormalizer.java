@@ -0,0 +1,412 @@
+package functionalsql.ast;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Rewrite which normalizes the filters of a query:
+ *
+ * - nested ors and ands are flattened ('( v = 1 OR ( v = 2 OR w = 3 ) )' -> '( v = 1 OR v = 2 OR w = 3 )') and an and
+ *   in the WHERE clause becomes part of it,
+ * - equalities on the same column in an or are merged into an IN list ('( v = 1 OR v IN ( 2, 3 ) )' -> 'v IN ( 1, 2, 3 )'),
+ *   up to the maximum list size,
+ * - duplicate predicates are removed,
+ * - predicates which contradict each other are detected ('v = 1 AND v != 1', 'v = 1 AND v = 2' for numbers, 'v > 5 AND
+ *   v < 3', 'v IS NULL AND v = 1'). A contradicting and in an or is removed. If the WHERE clause contradicts, the
+ *   query is marked provably empty (Query.isProvablyEmpty), unless it aggregates without grouping and returns a row
+ *   anyway. A query with a provably empty nested query in the FROM clause is provably empty too.
+ *
+ * Only these forms are checked, it is no general contradiction detection. Quoted values are only compared for being
+ * equal, because the collation of the database decides whether two different strings are equal: an equality and an IN
+ * list of quoted values are not compared with each other ('v = 'x' AND v IN ( 'y', 'z' )' is not detected). Nested
+ * queries are normalized on their own.
+ */
+public final class FilterNormalizer {
+    private FilterNormalizer() {
+    }
+
+    /**
+     * Returns the query with normalized filters. Nested queries are normalized bottom up and without recursion (see
+     * Nodes.rewrite).
+     */
+    public static Query normalize(Query query, int maximumListSize) {
+        return Nodes.rewrite(query, q -> normalizeFilters(q, maximumListSize), false);
+    }
+
+    /* Normalizes the WHERE clause of the query, of which the nested queries are normalized already.
+    */
+    private static Query normalizeFilters(Query query, int maximumListSize) {
+        boolean empty = false;
+
+        for (TableReference table : query.getFrom()) {
+            empty |= table.isSubquery() && table.getSubquery().isProvablyEmpty();
+        }
+
+        List<Predicate> normalized = new ArrayList<>(query.getWhere().size());
+
+        for (Predicate predicate : query.getWhere()) {
+            normalized.add(normalize(predicate, maximumListSize));
+        }
+
+        boolean[] contradicts = new boolean[1];
+        List<Predicate> where = and(query.getWhere(), normalized, contradicts);
+        empty |= contradicts[0];
+
+        /* An aggregate without GROUP BY returns a row for no rows.
+        */
+        if (empty && query.getGroupBy().isEmpty()) {
+            for (String column : query.getSelect()) {
+                if (column.contains("(")) {
+                    empty = false;
+                    break;
+                }
+            }
+        }
+
+        return query.toBuilder().where(where).provablyEmpty(empty).build();
+    }
+
+    /* Returns the normalized predicate or null if it is always false. Nested junctions are normalized bottom up with an
+    explicit stack, so deeply nested ors and ands do not overflow the thread stack.
+    */
+    private static Predicate normalize(Predicate predicate, int maximumListSize) {
+        if (!(predicate instanceof Junction)) {
+            return predicate;
+        }
+
+        Deque<JunctionFrame> stack = new ArrayDeque<>();
+        stack.push(new JunctionFrame((Junction)predicate));
+
+        while (true) {
+            JunctionFrame frame = stack.peek();
+            List<Predicate> predicates = frame.junction.getPredicates();
+
+            if (frame.normalized.size() < predicates.size()) {
+                Predicate p = predicates.get(frame.normalized.size());
+
+                if (p instanceof Junction) {
+                    stack.push(new JunctionFrame((Junction)p));
+                } else {
+                    frame.normalized.add(p);
+                }
+
+                continue;
+            }
+
+            stack.pop();
+
+            Predicate normalized = combine(frame.junction, frame.normalized, maximumListSize);
+
+            if (stack.isEmpty()) {
+                return normalized;
+            }
+
+            stack.peek().normalized.add(normalized);
+        }
+    }
+
+    /* Returns the junction of its normalized predicates (null for a predicate which is always false), or null if the
+    junction is always false.
+    */
+    private static Predicate combine(Junction junction, List<Predicate> normalized, int maximumListSize) {
+        List<Predicate> predicates;
+
+        if (junction.isOr()) {
+            predicates = or(normalized, maximumListSize);
+
+            if (predicates.isEmpty()) {
+                return null;
+            }
+        } else {
+            boolean[] contradicts = new boolean[1];
+            predicates = and(junction.getPredicates(), normalized, contradicts);
+
+            if (contradicts[0]) {
+                return null;
+            }
+        }
+
+        return predicates.size() == 1 ? predicates.get(0) : new Junction(junction.isOr(), predicates);
+    }
+
+    /* Flattens and deduplicates the normalized predicates of an and. A predicate which is always false (null) is kept
+    as it was before it was normalized.
+    */
+    private static List<Predicate> and(List<Predicate> predicates, List<Predicate> normalized, boolean[] contradicts) {
+        Set<Predicate> result = new LinkedHashSet<>();
+
+        for (int idx = 0; idx < predicates.size(); idx++) {
+            Predicate predicate = normalized.get(idx);
+
+            if (predicate == null) {
+                contradicts[0] = true;
+                result.add(predicates.get(idx));
+            } else if (predicate instanceof Junction && !((Junction)predicate).isOr()) {
+                result.addAll(((Junction)predicate).getPredicates());
+            } else {
+                result.add(predicate);
+            }
+        }
+
+        List<Predicate> list = new ArrayList<>(result);
+        contradicts[0] |= contradicts(list);
+        return list;
+    }
+
+    /* Flattens and deduplicates the normalized predicates of an or, merges its equalities and removes the predicates
+    which are always false (null). Returns an empty list if all predicates are always false.
+    */
+    private static List<Predicate> or(List<Predicate> normalized, int maximumListSize) {
+        Set<Predicate> result = new LinkedHashSet<>();
+
+        for (Predicate predicate : normalized) {
+            if (predicate instanceof Junction && ((Junction)predicate).isOr()) {
+                result.addAll(((Junction)predicate).getPredicates());
+            } else if (predicate != null) {
+                result.add(predicate);
+            }
+        }
+
+        /* The values per column of the equalities, in order of appearance.
+        */
+        Map<String, Set<Value>> values = new LinkedHashMap<>();
+        Map<String, Integer> count = new HashMap<>();
+
+        for (Predicate predicate : result) {
+            String column = equalityColumn(predicate);
+
+            if (column != null) {
+                values.computeIfAbsent(column, k -> new LinkedHashSet<>()).addAll(equalityValues(predicate));
+                count.merge(column, 1, Integer::sum);
+            }
+        }
+
+        List<Predicate> list = new ArrayList<>(result.size());
+
+        for (Predicate predicate : result) {
+            String column = equalityColumn(predicate);
+
+            if (column == null || count.get(column) == 1 || (values.containsKey(column) && values.get(column).size() > maximumListSize)) {
+                list.add(predicate);
+            } else if (values.containsKey(column)) {
+                /* The first equality on the column is replaced by the merged list, the others are left out.
+                */
+                List<Value> merged = new ArrayList<>(values.remove(column));
+                list.add(merged.size() == 1 ? new Comparison(column, "=", merged.get(0)) : new InList(column, merged, false));
+            }
+        }
+
+        return list;
+    }
+
+    private static String equalityColumn(Predicate predicate) {
+        if (predicate instanceof Comparison && ((Comparison)predicate).getOperator().equals("=") && !(((Comparison)predicate).getValue() instanceof ArrayValue)) {
+            return ((Comparison)predicate).getColumn();
+        } else if (predicate instanceof InList && !((InList)predicate).isNegated()) {
+            return ((InList)predicate).getColumn();
+        }
+
+        return null;
+    }
+
+    private static List<Value> equalityValues(Predicate predicate) {
+        if (predicate instanceof Comparison) {
+            List<Value> values = new ArrayList<>(1);
+            values.add(((Comparison)predicate).getValue());
+            return values;
+        }
+
+        return ((InList)predicate).getValues();
+    }
+
+    /* True if the predicates of an and can not all be true for a row.
+    */
+    private static boolean contradicts(List<Predicate> predicates) {
+        Map<String, Domain> domains = new HashMap<>();
+
+        for (Predicate predicate : predicates) {
+            if (predicate instanceof Comparison) {
+                Comparison c = (Comparison)predicate;
+                domains.computeIfAbsent(c.getColumn(), k -> new Domain()).compare(c.getOperator(), c.getValue());
+            } else if (predicate instanceof InList) {
+                InList in = (InList)predicate;
+                domains.computeIfAbsent(in.getColumn(), k -> new Domain()).in(in.getValues(), in.isNegated());
+            } else if (predicate instanceof IsNull && !((IsNull)predicate).isNegated()) {
+                domains.computeIfAbsent(((IsNull)predicate).getColumn(), k -> new Domain()).isNull = true;
+            }
+        }
+
+        for (Domain domain : domains.values()) {
+            if (domain.isEmpty()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /* The values a column can have according to the predicates of an and.
+    */
+    private static class Domain {
+        final Set<Value> equal = new LinkedHashSet<>(), notEqual = new LinkedHashSet<>();
+        Set<BigDecimal> numbers;
+        final Set<BigDecimal> notNumbers = new TreeSet<>();
+        BigDecimal lower, upper;
+        boolean lowerInclusive, upperInclusive, compared, isNull;
+
+        void compare(String operator, Value value) {
+            BigDecimal number = number(value);
+            compared = true;
+
+            switch (operator) {
+                case "=":
+                    equal.add(value);
+                    restrict(number == null ? null : listOf(number));
+                    break;
+                case "!=":
+                case "<>":
+                    notEqual.add(value);
+
+                    if (number != null) {
+                        notNumbers.add(number);
+                    }
+                    break;
+                case ">":
+                case ">=":
+                    if (number != null && (lower == null || number.compareTo(lower) > 0 || (number.compareTo(lower) == 0 && !operator.equals(">=")))) {
+                        lower = number;
+                        lowerInclusive = operator.equals(">=");
+                    }
+                    break;
+                case "<":
+                case "<=":
+                    if (number != null && (upper == null || number.compareTo(upper) < 0 || (number.compareTo(upper) == 0 && !operator.equals("<=")))) {
+                        upper = number;
+                        upperInclusive = operator.equals("<=");
+                    }
+                    break;
+            }
+        }
+
+        void in(List<Value> values, boolean negated) {
+            compared = true;
+
+            if (negated) {
+                notEqual.addAll(values);
+
+                for (Value value : values) {
+                    BigDecimal number = number(value);
+
+                    if (number != null) {
+                        notNumbers.add(number);
+                    }
+                }
+            } else {
+                List<BigDecimal> list = new ArrayList<>(values.size());
+
+                for (Value value : values) {
+                    BigDecimal number = number(value);
+
+                    if (number == null) {
+                        return;
+                    }
+
+                    list.add(number);
+                }
+
+                restrict(list);
+            }
+        }
+
+        /* Keeps the numbers which are in the list. A list which is null (not only numbers) restricts nothing.
+        */
+        void restrict(List<BigDecimal> list) {
+            if (list == null) {
+                return;
+            }
+
+            Set<BigDecimal> restricted = new TreeSet<>(list);
+
+            if (numbers != null) {
+                restricted.retainAll(numbers);
+            }
+
+            numbers = restricted;
+        }
+
+        boolean isEmpty() {
+            if (isNull && compared) {
+                return true;
+            }
+
+            for (Value value : equal) {
+                if (notEqual.contains(value)) {
+                    return true;
+                }
+            }
+
+            if (lower != null && upper != null) {
+                int c = lower.compareTo(upper);
+
+                if (c > 0 || (c == 0 && !(lowerInclusive && upperInclusive))) {
+                    return true;
+                }
+            }
+
+            if (numbers == null) {
+                return false;
+            }
+
+            for (BigDecimal number : numbers) {
+                if (!notNumbers.contains(number) &&
+                        (lower == null || number.compareTo(lower) > 0 || (lowerInclusive && number.compareTo(lower) == 0)) &&
+                        (upper == null || number.compareTo(upper) < 0 || (upperInclusive && number.compareTo(upper) == 0))) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        private static List<BigDecimal> listOf(BigDecimal number) {
+            List<BigDecimal> list = new ArrayList<>(1);
+            list.add(number);
+            return list;
+        }
+
+        /* Value of a literal number or null.
+        */
+        private static BigDecimal number(Value value) {
+            if (!(value instanceof Literal) || ((Literal)value).isQuoted()) {
+                return null;
+            }
+
+            Object number = ((Literal)value).getValue();
+
+            if (number instanceof Long) {
+                return BigDecimal.valueOf((Long)number);
+            }
+
+            return number instanceof BigDecimal ? (BigDecimal)number : null;
+        }
+    }
+
+    private static class JunctionFrame {
+        final Junction junction;
+        final List<Predicate> normalized;
+
+        JunctionFrame(Junction junction) {
+            this.junction = junction;
+            this.normalized = new ArrayList<>(junction.getPredicates().size());
+        }
+    }
+}
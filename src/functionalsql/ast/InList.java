@@ -0,0 +1,46 @@
+package functionalsql.ast;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Column in (or not in) a list of values, e.g. 'v IN ( 1, 2 )'.
+ */
+public final class InList extends Predicate {
+    private final String column;
+    private final List<Value> values;
+    private final boolean negated;
+
+    public InList(String column, List<? extends Value> values, boolean negated) {
+        this.column = column;
+        this.values = Collections.unmodifiableList(new ArrayList<>(values));
+        this.negated = negated;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    public List<Value> getValues() {
+        return values;
+    }
+
+    public boolean isNegated() {
+        return negated;
+    }
+
+    public boolean equals(Object other) {
+        if (!(other instanceof InList)) {
+            return false;
+        }
+
+        InList c = (InList)other;
+        return column.equals(c.column) && negated == c.negated && values.equals(c.values);
+    }
+
+    public int hashCode() {
+        return Objects.hash(column, values, negated);
+    }
+}
@@ -0,0 +1,34 @@
+package functionalsql.ast;
+
+import java.util.Objects;
+
+/**
+ * Column in the result of a nested query, e.g. 'v IN (SELECT ...)'.
+ */
+public final class InSubquery extends Predicate {
+    private final String column;
+    private final Query query;
+    private final int hash;
+
+    public InSubquery(String column, Query query) {
+        this.column = column;
+        this.query = query;
+        this.hash = Objects.hash(column, query);
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    public Query getQuery() {
+        return query;
+    }
+
+    public boolean equals(Object other) {
+        return other instanceof InSubquery && Nodes.equal(this, other);
+    }
+
+    public int hashCode() {
+        return hash;
+    }
+}
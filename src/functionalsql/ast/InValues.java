@@ -0,0 +1,47 @@
+package functionalsql.ast;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Column in (or not in) a VALUES row constructor, e.g. 'v IN (SELECT c FROM (VALUES (1), (2)) AS v(c))'. Used
+ * instead of an InList for lists which are too long for the IN list of a database.
+ */
+public final class InValues extends Predicate {
+    private final String column;
+    private final List<Value> values;
+    private final boolean negated;
+
+    public InValues(String column, List<? extends Value> values, boolean negated) {
+        this.column = column;
+        this.values = Collections.unmodifiableList(new ArrayList<>(values));
+        this.negated = negated;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    public List<Value> getValues() {
+        return values;
+    }
+
+    public boolean isNegated() {
+        return negated;
+    }
+
+    public boolean equals(Object other) {
+        if (!(other instanceof InValues)) {
+            return false;
+        }
+
+        InValues c = (InValues)other;
+        return column.equals(c.column) && negated == c.negated && values.equals(c.values);
+    }
+
+    public int hashCode() {
+        return Objects.hash(column, values, negated);
+    }
+}
@@ -0,0 +1,32 @@
+package functionalsql.ast;
+
+import java.util.Objects;
+
+/**
+ * Column is (not) null, e.g. 'v IS NULL'.
+ */
+public final class IsNull extends Predicate {
+    private final String column;
+    private final boolean negated;
+
+    public IsNull(String column, boolean negated) {
+        this.column = column;
+        this.negated = negated;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    public boolean isNegated() {
+        return negated;
+    }
+
+    public boolean equals(Object other) {
+        return other instanceof IsNull && column.equals(((IsNull)other).column) && negated == ((IsNull)other).negated;
+    }
+
+    public int hashCode() {
+        return Objects.hash(column, negated);
+    }
+}
@@ -0,0 +1,56 @@
+package functionalsql.ast;
+
+import java.util.Objects;
+
+/**
+ * Explicit join, e.g. 'LEFT JOIN b t1 ON t0.id = t1.id'.
+ *
+ * Inner joins without a join type are not join clauses: their table is part of the FROM clause and their condition
+ * is part of the WHERE clause.
+ */
+public final class JoinClause {
+    public enum Type {
+        INNER, LEFT, RIGHT, FULL;
+    }
+
+    private final Type type;
+    private final TableReference table;
+    private final Predicate condition;
+    private final int hash;
+    private String sql;
+
+    public JoinClause(Type type, TableReference table, Predicate condition) {
+        this.type = type;
+        this.table = table;
+        this.condition = condition;
+        this.hash = Objects.hash(type, table, condition);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public TableReference getTable() {
+        return table;
+    }
+
+    public Predicate getCondition() {
+        return condition;
+    }
+
+    public boolean equals(Object other) {
+        return other instanceof JoinClause && Nodes.equal(this, other);
+    }
+
+    public int hashCode() {
+        return hash;
+    }
+
+    public String toString() {
+        if (sql == null) {
+            sql = SqlRenderer.toSql(this);
+        }
+
+        return sql;
+    }
+}
@@ -0,0 +1,37 @@
+package functionalsql.ast;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Predicates combined with OR or AND, e.g. '( v = 1 OR v = 2 )'.
+ */
+public final class Junction extends Predicate {
+    private final boolean or;
+    private final List<Predicate> predicates;
+    private final int hash;
+
+    public Junction(boolean or, List<? extends Predicate> predicates) {
+        this.or = or;
+        this.predicates = Collections.unmodifiableList(new ArrayList<>(predicates));
+        this.hash = Objects.hash(or, this.predicates);
+    }
+
+    public boolean isOr() {
+        return or;
+    }
+
+    public List<Predicate> getPredicates() {
+        return predicates;
+    }
+
+    public boolean equals(Object other) {
+        return other instanceof Junction && Nodes.equal(this, other);
+    }
+
+    public int hashCode() {
+        return hash;
+    }
+}
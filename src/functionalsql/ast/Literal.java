@@ -0,0 +1,54 @@
+package functionalsql.ast;
+
+import java.math.BigDecimal;
+
+/**
+ * Constant as written in the SQL, e.g. 1 or 'abc' (including the quotes).
+ */
+public final class Literal extends Value {
+    private final String text;
+
+    public Literal(String text) {
+        this.text = text;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Returns the value of the literal: the text between the quotes for a quoted literal, otherwise a Long or, for
+     * numbers with decimals, a BigDecimal.
+     */
+    public Object getValue() {
+        if (isQuoted()) {
+            return text.substring(1, text.length() - 1);
+        }
+
+        try {
+            return Long.valueOf(text);
+        } catch (NumberFormatException e) {
+            try {
+                return new BigDecimal(text);
+            } catch (NumberFormatException e2) {
+                return text;
+            }
+        }
+    }
+
+    public boolean isQuoted() {
+        return text.length() > 1 && text.charAt(0) == '\'' && text.charAt(text.length() - 1) == '\'';
+    }
+
+    public boolean equals(Object other) {
+        return other instanceof Literal && text.equals(((Literal)other).text);
+    }
+
+    public int hashCode() {
+        return text.hashCode();
+    }
+
+    public String toString() {
+        return text;
+    }
+}
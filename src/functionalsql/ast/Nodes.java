@@ -0,0 +1,218 @@
+package functionalsql.ast;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.UnaryOperator;
+
+/**
+ * Equality and rewrites of nodes which contain other nodes (queries, tables, joins, junctions and subquery predicates).
+ *
+ * The nodes are compared and rewritten with an explicit stack instead of recursion, so deeply nested trees do not
+ * overflow the thread stack. The hash code of these nodes is computed once, in their constructor, from the hash codes
+ * of their children, which are computed already. Nodes with a different hash code are not compared further.
+ */
+final class Nodes {
+    private Nodes() {
+    }
+
+    static boolean equal(Object a, Object b) {
+        Deque<Object> stack = new ArrayDeque<>();
+        stack.push(a);
+        stack.push(b);
+
+        while (!stack.isEmpty()) {
+            Object y = stack.pop(), x = stack.pop();
+
+            if (x == y) {
+                continue;
+            }
+
+            if (x == null || y == null || x.getClass() != y.getClass() || x.hashCode() != y.hashCode()) {
+                return false;
+            }
+
+            if (x instanceof Query) {
+                Query p = (Query)x, q = (Query)y;
+
+                if (p.isDistinct() != q.isDistinct() || p.isProvablyEmpty() != q.isProvablyEmpty() || !p.getSelect().equals(q.getSelect()) ||
+                        !p.getGroupBy().equals(q.getGroupBy()) || !Objects.equals(p.getOrderBy(), q.getOrderBy()) ||
+                        !Objects.equals(p.getLimit(), q.getLimit()) || !Objects.equals(p.getOffset(), q.getOffset()) ||
+                        !push(p.getFrom(), q.getFrom(), stack) || !push(p.getJoins(), q.getJoins(), stack) ||
+                        !push(p.getWhere(), q.getWhere(), stack)) {
+                    return false;
+                }
+            } else if (x instanceof TableReference) {
+                TableReference p = (TableReference)x, q = (TableReference)y;
+
+                if (!p.getAlias().equals(q.getAlias()) || !Objects.equals(p.getTable(), q.getTable()) || p.isSubquery() != q.isSubquery()) {
+                    return false;
+                }
+
+                if (!p.isSubquery()) {
+                    continue;
+                }
+
+                stack.push(p.getSubquery());
+                stack.push(q.getSubquery());
+            } else if (x instanceof JoinClause) {
+                JoinClause p = (JoinClause)x, q = (JoinClause)y;
+
+                if (p.getType() != q.getType()) {
+                    return false;
+                }
+
+                stack.push(p.getTable());
+                stack.push(q.getTable());
+                stack.push(p.getCondition());
+                stack.push(q.getCondition());
+            } else if (x instanceof Junction) {
+                if (((Junction)x).isOr() != ((Junction)y).isOr() || !push(((Junction)x).getPredicates(), ((Junction)y).getPredicates(), stack)) {
+                    return false;
+                }
+            } else if (x instanceof InSubquery) {
+                if (!((InSubquery)x).getColumn().equals(((InSubquery)y).getColumn())) {
+                    return false;
+                }
+
+                stack.push(((InSubquery)x).getQuery());
+                stack.push(((InSubquery)y).getQuery());
+            } else if (x instanceof Exists) {
+                if (((Exists)x).isNegated() != ((Exists)y).isNegated()) {
+                    return false;
+                }
+
+                stack.push(((Exists)x).getQuery());
+                stack.push(((Exists)y).getQuery());
+            } else if (!x.equals(y)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /* Rewrites the query and its nested queries bottom up: every query is passed to rewrite after its nested queries
+    are rewritten and replaced. The nodes on the path to a changed query are rebuilt, the others are kept. If
+    correlatedOnly is set, only the correlated subqueries (exists) are rewritten, not the nested queries in FROM, in
+    ANSI joins and in IN.
+    */
+    static Query rewrite(Query query, UnaryOperator<Query> rewrite, boolean correlatedOnly) {
+        Deque<Frame> stack = new ArrayDeque<>();
+        stack.push(new Frame(query, children(query, correlatedOnly)));
+
+        while (true) {
+            Frame frame = stack.peek();
+
+            if (frame.results.size() < frame.children.size()) {
+                Object child = frame.children.get(frame.results.size());
+                List<Object> children = children(child, correlatedOnly);
+
+                if (children.isEmpty() && !(child instanceof Query)) {
+                    frame.results.add(child);
+                } else {
+                    stack.push(new Frame(child, children));
+                }
+
+                continue;
+            }
+
+            stack.pop();
+
+            Object node = frame.changed ? rebuild(frame.node, frame.results) : frame.node;
+
+            if (node instanceof Query) {
+                node = rewrite.apply((Query)node);
+            }
+
+            if (stack.isEmpty()) {
+                return (Query)node;
+            }
+
+            stack.peek().changed |= node != frame.node;
+            stack.peek().results.add(node);
+        }
+    }
+
+    private static List<Object> children(Object node, boolean correlatedOnly) {
+        List<Object> children = new ArrayList<>();
+
+        if (node instanceof Query) {
+            Query query = (Query)node;
+            children.addAll(query.getFrom());
+            children.addAll(query.getJoins());
+            children.addAll(query.getWhere());
+        } else if (node instanceof TableReference) {
+            if (((TableReference)node).isSubquery() && !correlatedOnly) {
+                children.add(((TableReference)node).getSubquery());
+            }
+        } else if (node instanceof JoinClause) {
+            children.add(((JoinClause)node).getTable());
+            children.add(((JoinClause)node).getCondition());
+        } else if (node instanceof Junction) {
+            children.addAll(((Junction)node).getPredicates());
+        } else if (node instanceof InSubquery) {
+            if (!correlatedOnly) {
+                children.add(((InSubquery)node).getQuery());
+            }
+        } else if (node instanceof Exists) {
+            children.add(((Exists)node).getQuery());
+        } else {
+            return Collections.emptyList();
+        }
+
+        return children;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object rebuild(Object node, List<Object> children) {
+        if (node instanceof Query) {
+            Query query = (Query)node;
+            int joins = query.getFrom().size(), where = joins + query.getJoins().size();
+
+            return query.toBuilder()
+                    .from((List<TableReference>)(List<?>)children.subList(0, joins))
+                    .joins((List<JoinClause>)(List<?>)children.subList(joins, where))
+                    .where((List<Predicate>)(List<?>)children.subList(where, children.size()))
+                    .build();
+        } else if (node instanceof TableReference) {
+            return new TableReference((Query)children.get(0), ((TableReference)node).getAlias());
+        } else if (node instanceof JoinClause) {
+            return new JoinClause(((JoinClause)node).getType(), (TableReference)children.get(0), (Predicate)children.get(1));
+        } else if (node instanceof Junction) {
+            return new Junction(((Junction)node).isOr(), (List<Predicate>)(List<?>)children);
+        } else if (node instanceof InSubquery) {
+            return new InSubquery(((InSubquery)node).getColumn(), (Query)children.get(0));
+        }
+
+        return new Exists((Query)children.get(0), ((Exists)node).isNegated());
+    }
+
+    private static class Frame {
+        final Object node;
+        final List<Object> children, results;
+        boolean changed;
+
+        Frame(Object node, List<Object> children) {
+            this.node = node;
+            this.children = children;
+            this.results = new ArrayList<>(children.size());
+        }
+    }
+
+    private static boolean push(List<?> a, List<?> b, Deque<Object> stack) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+
+        for (int idx = 0; idx < a.size(); idx++) {
+            stack.push(a.get(idx));
+            stack.push(b.get(idx));
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,48 @@
+package functionalsql.ast;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * ORDER BY clause. All columns are sorted in the same direction.
+ *
+ * By default the direction is rendered once, after the last column ('ORDER BY v, w DESC'), as FS always did. With
+ * directionPerColumn it is rendered after every column ('ORDER BY v DESC, w DESC'), which the seek of after needs.
+ */
+public final class OrderBy {
+    private final List<String> columns;
+    private final boolean ascending, directionPerColumn;
+
+    public OrderBy(List<String> columns, boolean ascending) {
+        this(columns, ascending, false);
+    }
+
+    public OrderBy(List<String> columns, boolean ascending, boolean directionPerColumn) {
+        this.columns = Collections.unmodifiableList(new ArrayList<>(columns));
+        this.ascending = ascending;
+        this.directionPerColumn = directionPerColumn;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    public boolean isDirectionPerColumn() {
+        return directionPerColumn;
+    }
+
+    public boolean equals(Object other) {
+        return other instanceof OrderBy && ascending == ((OrderBy)other).ascending && directionPerColumn == ((OrderBy)other).directionPerColumn &&
+                columns.equals(((OrderBy)other).columns);
+    }
+
+    public int hashCode() {
+        return Objects.hash(columns, ascending, directionPerColumn);
+    }
+}
@@ -0,0 +1,55 @@
+package functionalsql.ast;
+
+import java.util.Objects;
+
+/**
+ * Placeholder for a value which is bound when the SQL is executed. A parameter is either positional ('?', numbered
+ * from 1 in order of appearance in the FS statement) or named (':name'). It is rendered as a JDBC marker ('?').
+ */
+public final class Parameter extends Value {
+    private final String name;
+    private final int position;
+
+    private Parameter(String name, int position) {
+        this.name = name;
+        this.position = position;
+    }
+
+    public static Parameter positional(int position) {
+        return new Parameter(null, position);
+    }
+
+    public static Parameter named(String name) {
+        return new Parameter(name, 0);
+    }
+
+    /**
+     * Name of a named parameter (without the colon) or null.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Position of a positional parameter (starting with 1) or 0.
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    public boolean isNamed() {
+        return name != null;
+    }
+
+    public boolean equals(Object other) {
+        return other instanceof Parameter && position == ((Parameter)other).position && Objects.equals(name, ((Parameter)other).name);
+    }
+
+    public int hashCode() {
+        return Objects.hash(name, position);
+    }
+
+    public String toString() {
+        return name != null ? ":" + name : "?" + position;
+    }
+}
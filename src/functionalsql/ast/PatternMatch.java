@@ -0,0 +1,32 @@
+package functionalsql.ast;
+
+import java.util.Objects;
+
+/**
+ * Column like a pattern, e.g. 'v LIKE 'a%''.
+ */
+public final class PatternMatch extends Predicate {
+    private final String column;
+    private final Value pattern;
+
+    public PatternMatch(String column, Value pattern) {
+        this.column = column;
+        this.pattern = pattern;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    public Value getPattern() {
+        return pattern;
+    }
+
+    public boolean equals(Object other) {
+        return other instanceof PatternMatch && column.equals(((PatternMatch)other).column) && pattern.equals(((PatternMatch)other).pattern);
+    }
+
+    public int hashCode() {
+        return Objects.hash(column, pattern);
+    }
+}
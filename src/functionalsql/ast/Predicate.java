@@ -0,0 +1,19 @@
+package functionalsql.ast;
+
+/**
+ * Condition in a WHERE or ON clause.
+ */
+public abstract class Predicate {
+    private String sql;
+
+    /**
+     * Returns the SQL of the predicate. Predicates are immutable, so the SQL is rendered once.
+     */
+    public String toString() {
+        if (sql == null) {
+            sql = SqlRenderer.toSql(this);
+        }
+
+        return sql;
+    }
+}
@@ -0,0 +1,214 @@
+package functionalsql.ast;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Rewrite which copies the filters on a column to the columns it is joined on, e.g.
+ *
+ * SELECT * FROM a t0, b t1 WHERE t0.id = 5 AND t0.id = t1.id
+ *
+ * becomes
+ *
+ * SELECT * FROM a t0, b t1 WHERE t0.id = 5 AND t0.id = t1.id AND t1.id = 5
+ *
+ * so the database can use the filter on both tables. Comparisons (=, <, <=, >, >=) and IN lists on columns qualified
+ * with an alias are copied along the equi-join conditions in the WHERE clause and of inner joins, also over more than
+ * one join. Columns of the null-supplying side of outer joins (the table of a left join, the tables before a right join
+ * and both sides of a full join) are skipped, because a filter in the WHERE clause on those columns would remove the
+ * rows without a match. Nested queries are rewritten on their own.
+ */
+public final class PredicateInference {
+    private final static Pattern COLUMN = Pattern.compile("t[0-9]+\\.[a-zA-Z_][a-zA-Z0-9_]*");
+
+    private PredicateInference() {
+    }
+
+    /**
+     * Returns the query with the inferred filters added to its WHERE clause, or the same query if nothing is inferred.
+     * Nested queries are rewritten bottom up and without recursion (see Nodes.rewrite).
+     */
+    public static Query infer(Query query) {
+        return Nodes.rewrite(query, PredicateInference::addInferred, false);
+    }
+
+    private static Query addInferred(Query query) {
+        List<Predicate> inferred = inferred(query.getFrom(), query.getJoins(), query.getWhere());
+
+        if (inferred.isEmpty()) {
+            return query;
+        }
+
+        List<Predicate> where = new ArrayList<>(query.getWhere().size() + inferred.size());
+        where.addAll(query.getWhere());
+        where.addAll(inferred);
+
+        return query.toBuilder().where(where).build();
+    }
+
+    private static List<Predicate> inferred(List<TableReference> from, List<JoinClause> joins, List<Predicate> where) {
+        /* The aliases of the tables of the query, without those of the null-supplying side of outer joins.
+        */
+        Set<String> tables = new HashSet<>(), nullable = new HashSet<>();
+
+        for (TableReference table : from) {
+            tables.add(table.getAlias());
+        }
+
+        for (JoinClause join : joins) {
+            if (join.getType() == JoinClause.Type.RIGHT || join.getType() == JoinClause.Type.FULL) {
+                nullable.addAll(tables);
+            }
+
+            if (join.getType() == JoinClause.Type.LEFT || join.getType() == JoinClause.Type.FULL) {
+                nullable.add(join.getTable().getAlias());
+            }
+
+            tables.add(join.getTable().getAlias());
+        }
+
+        tables.removeAll(nullable);
+
+        Map<String, String> parents = new LinkedHashMap<>();
+        Map<String, Integer> sizes = new HashMap<>();
+
+        for (Predicate predicate : where) {
+            join(predicate, tables, parents, sizes);
+        }
+
+        for (JoinClause join : joins) {
+            if (join.getType() == JoinClause.Type.INNER) {
+                join(join.getCondition(), tables, parents, sizes);
+            }
+        }
+
+        if (parents.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        /* Columns per class, in order of appearance.
+        */
+        Map<String, Set<String>> classes = new HashMap<>();
+
+        for (String column : parents.keySet()) {
+            classes.computeIfAbsent(find(parents, column), k -> new LinkedHashSet<>()).add(column);
+        }
+
+        Set<Predicate> inferred = new LinkedHashSet<>();
+        Set<Predicate> existing = new HashSet<>(where);
+
+        for (Predicate predicate : where) {
+            String column = filteredColumn(predicate);
+
+            if (column == null || !parents.containsKey(column)) {
+                continue;
+            }
+
+            for (String other : classes.get(find(parents, column))) {
+                if (!other.equals(column)) {
+                    Predicate copy = copy(predicate, other);
+
+                    if (!existing.contains(copy)) {
+                        inferred.add(copy);
+                    }
+                }
+            }
+        }
+
+        return new ArrayList<>(inferred);
+    }
+
+    /* Adds an equi-join condition between two columns of the tables to the classes of equal columns. The classes are
+    a union-find: parents holds the parent of every column, sizes the number of columns of every class (by its root).
+    The smaller class is added to the larger, so the paths to the roots stay short.
+    */
+    private static void join(Predicate predicate, Set<String> tables, Map<String, String> parents, Map<String, Integer> sizes) {
+        if (!(predicate instanceof ColumnComparison)) {
+            return;
+        }
+
+        ColumnComparison c = (ColumnComparison)predicate;
+
+        if (!c.getOperator().equals("=") || !isColumnOf(c.getLeft(), tables) || !isColumnOf(c.getRight(), tables)) {
+            return;
+        }
+
+        parents.putIfAbsent(c.getLeft(), c.getLeft());
+        parents.putIfAbsent(c.getRight(), c.getRight());
+
+        String left = find(parents, c.getLeft()), right = find(parents, c.getRight());
+
+        if (left.equals(right)) {
+            return;
+        }
+
+        int leftSize = sizes.getOrDefault(left, 1), rightSize = sizes.getOrDefault(right, 1);
+
+        if (leftSize > rightSize) {
+            String root = left;
+            left = right;
+            right = root;
+        }
+
+        parents.put(left, right);
+        sizes.put(right, leftSize + rightSize);
+        sizes.remove(left);
+    }
+
+    /* Root of the class of the column. The columns on the path get the root as parent (path compression).
+    */
+    private static String find(Map<String, String> parents, String column) {
+        String root = column;
+
+        for (String parent = parents.get(root); !parent.equals(root); parent = parents.get(root)) {
+            root = parent;
+        }
+
+        while (!column.equals(root)) {
+            column = parents.put(column, root);
+        }
+
+        return root;
+    }
+
+    private static boolean isColumnOf(String column, Set<String> tables) {
+        return COLUMN.matcher(column).matches() && tables.contains(column.substring(0, column.indexOf('.')));
+    }
+
+    /* Column of a filter which can be copied, or null.
+    */
+    private static String filteredColumn(Predicate predicate) {
+        if (predicate instanceof Comparison) {
+            switch (((Comparison)predicate).getOperator()) {
+                case "=":
+                case "<":
+                case "<=":
+                case ">":
+                case ">=":
+                    return ((Comparison)predicate).getColumn();
+                default:
+                    return null;
+            }
+        } else if (predicate instanceof InList && !((InList)predicate).isNegated()) {
+            return ((InList)predicate).getColumn();
+        }
+
+        return null;
+    }
+
+    private static Predicate copy(Predicate predicate, String column) {
+        if (predicate instanceof Comparison) {
+            Comparison c = (Comparison)predicate;
+            return new Comparison(column, c.getOperator(), c.getValue());
+        }
+
+        return new InList(column, ((InList)predicate).getValues(), false);
+    }
+}
@@ -0,0 +1,207 @@
+package functionalsql.ast;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Immutable result of the compilation of a FS statement.
+ *
+ * A query is created with a Builder. Rewrites of a query start with toBuilder() and create a new query, so a query
+ * can be shared between threads and cached.
+ */
+public final class Query {
+    private final boolean distinct;
+    private final List<String> select;
+    private final List<TableReference> from;
+    private final List<JoinClause> joins;
+    private final List<Predicate> where;
+    private final List<String> groupBy;
+    private final OrderBy orderBy;
+    private final Value limit, offset;
+    private final boolean provablyEmpty;
+    private final int hash;
+
+    private Query(Builder builder) {
+        distinct = builder.distinct;
+        select = immutable(builder.select);
+        from = immutable(builder.from);
+        joins = immutable(builder.joins);
+        where = immutable(builder.where);
+        groupBy = immutable(builder.groupBy);
+        orderBy = builder.orderBy;
+        limit = builder.limit;
+        offset = builder.offset;
+        provablyEmpty = builder.provablyEmpty;
+        hash = Objects.hash(distinct, select, from, joins, where, groupBy, orderBy, limit, offset, provablyEmpty);
+    }
+
+    private static <T> List<T> immutable(List<T> list) {
+        return list.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(list));
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public Builder toBuilder() {
+        Builder builder = new Builder();
+        builder.distinct = distinct;
+        builder.select.addAll(select);
+        builder.from.addAll(from);
+        builder.joins.addAll(joins);
+        builder.where.addAll(where);
+        builder.groupBy.addAll(groupBy);
+        builder.orderBy = orderBy;
+        builder.limit = limit;
+        builder.offset = offset;
+        builder.provablyEmpty = provablyEmpty;
+        return builder;
+    }
+
+    public boolean isDistinct() {
+        return distinct;
+    }
+
+    /**
+     * Selected columns and expressions. An empty list selects all columns ('SELECT *').
+     */
+    public List<String> getSelect() {
+        return select;
+    }
+
+    public List<TableReference> getFrom() {
+        return from;
+    }
+
+    public List<JoinClause> getJoins() {
+        return joins;
+    }
+
+    /**
+     * Predicates of the WHERE clause, which are combined with AND.
+     */
+    public List<Predicate> getWhere() {
+        return where;
+    }
+
+    public List<String> getGroupBy() {
+        return groupBy;
+    }
+
+    /**
+     * The ORDER BY clause or null.
+     */
+    public OrderBy getOrderBy() {
+        return orderBy;
+    }
+
+    /**
+     * Maximum number of rows or null.
+     */
+    public Value getLimit() {
+        return limit;
+    }
+
+    /**
+     * Number of rows to skip or null.
+     */
+    public Value getOffset() {
+        return offset;
+    }
+
+    /**
+     * True if the filters contradict each other, so the query returns no rows and does not have to be executed (see
+     * FilterNormalizer).
+     */
+    public boolean isProvablyEmpty() {
+        return provablyEmpty;
+    }
+
+    public boolean equals(Object other) {
+        return other instanceof Query && Nodes.equal(this, other);
+    }
+
+    public int hashCode() {
+        return hash;
+    }
+
+    public String toString() {
+        return SqlRenderer.toSql(this);
+    }
+
+    public static class Builder {
+        private boolean distinct;
+        private final List<String> select = new ArrayList<>();
+        private final List<TableReference> from = new ArrayList<>();
+        private final List<JoinClause> joins = new ArrayList<>();
+        private final List<Predicate> where = new ArrayList<>();
+        private final List<String> groupBy = new ArrayList<>();
+        private OrderBy orderBy;
+        private Value limit, offset;
+        private boolean provablyEmpty;
+
+        private Builder() {
+        }
+
+        public Builder distinct(boolean distinct) {
+            this.distinct = distinct;
+            return this;
+        }
+
+        public Builder select(List<String> columns) {
+            select.clear();
+            select.addAll(columns);
+            return this;
+        }
+
+        public Builder from(List<TableReference> tables) {
+            from.clear();
+            from.addAll(tables);
+            return this;
+        }
+
+        public Builder joins(List<JoinClause> clauses) {
+            joins.clear();
+            joins.addAll(clauses);
+            return this;
+        }
+
+        public Builder where(List<? extends Predicate> predicates) {
+            where.clear();
+            where.addAll(predicates);
+            return this;
+        }
+
+        public Builder groupBy(List<String> columns) {
+            groupBy.clear();
+            groupBy.addAll(columns);
+            return this;
+        }
+
+        public Builder orderBy(OrderBy orderBy) {
+            this.orderBy = orderBy;
+            return this;
+        }
+
+        public Builder limit(Value limit) {
+            this.limit = limit;
+            return this;
+        }
+
+        public Builder offset(Value offset) {
+            this.offset = offset;
+            return this;
+        }
+
+        public Builder provablyEmpty(boolean provablyEmpty) {
+            this.provablyEmpty = provablyEmpty;
+            return this;
+        }
+
+        public Query build() {
+            return new Query(this);
+        }
+    }
+}
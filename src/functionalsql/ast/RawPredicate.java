@@ -0,0 +1,24 @@
+package functionalsql.ast;
+
+/**
+ * Predicate given as SQL text, e.g. by a custom function which adds its own filter clause.
+ */
+public final class RawPredicate extends Predicate {
+    private final String sql;
+
+    public RawPredicate(String sql) {
+        this.sql = sql;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public boolean equals(Object other) {
+        return other instanceof RawPredicate && sql.equals(((RawPredicate)other).sql);
+    }
+
+    public int hashCode() {
+        return sql.hashCode();
+    }
+}
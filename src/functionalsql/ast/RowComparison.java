@@ -0,0 +1,55 @@
+package functionalsql.ast;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Comparison of a row of columns with a row of values, e.g. the seek predicate '(a, b) > (1, 2)' of keyset
+ * pagination. Dialects without row values (see Dialect.supportsRowValues) get the expanded form
+ * '( a > 1 OR ( a = 1 AND b > 2 ) )'.
+ */
+public final class RowComparison extends Predicate {
+    private final List<String> columns;
+    private final String operator;
+    private final List<Value> values;
+
+    public RowComparison(List<String> columns, String operator, List<? extends Value> values) {
+        if (columns.size() != values.size()) {
+            throw new IllegalArgumentException("Need a value for every column.");
+        }
+
+        this.columns = Collections.unmodifiableList(new ArrayList<>(columns));
+        this.operator = operator;
+        this.values = Collections.unmodifiableList(new ArrayList<>(values));
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    /**
+     * '<' or '>'.
+     */
+    public String getOperator() {
+        return operator;
+    }
+
+    public List<Value> getValues() {
+        return values;
+    }
+
+    public boolean equals(Object other) {
+        if (!(other instanceof RowComparison)) {
+            return false;
+        }
+
+        RowComparison c = (RowComparison)other;
+        return columns.equals(c.columns) && operator.equals(c.operator) && values.equals(c.values);
+    }
+
+    public int hashCode() {
+        return Objects.hash(columns, operator, values);
+    }
+}
@@ -0,0 +1,461 @@
+package functionalsql.ast;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Writes the SQL of a query. Nested queries are written in place, so the SQL of the whole query tree is written
+ * once into the same output.
+ *
+ * The tree is written with an explicit stack instead of recursion, so the depth of nested queries and predicates is
+ * not limited by the thread stack (like the parser, see FunctionalSQLCompiler). Every node is expanded into its parts:
+ * text, values and child nodes. The parts up to the first child are written to the output directly, the others are
+ * pushed on the stack and written or expanded in turn. No intermediate strings are built.
+ */
+public class SqlRenderer {
+    private final static SqlRenderer DEFAULT = new SqlRenderer();
+
+    private final Dialect dialect;
+
+    private final List<Value> markers;
+
+    private final boolean parameterizeLiterals, arrayBinding;
+
+    public SqlRenderer() {
+        this(Dialect.ANSI);
+    }
+
+    public SqlRenderer(Dialect dialect) {
+        this(dialect, null, false, false);
+    }
+
+    /**
+     * Creates a renderer which adds every value it writes as a marker ('?') to the list, so the list holds the values
+     * in the order of their markers in the SQL. Parameters are always written as a marker, literals only if
+     * parameterizeLiterals is set. If arrayBinding is set and the dialect supports it, a value list is written as one
+     * marker for an ArrayValue (e.g. 'v = ANY(?)').
+     */
+    public SqlRenderer(Dialect dialect, List<Value> markers, boolean parameterizeLiterals, boolean arrayBinding) {
+        this.dialect = dialect;
+        this.markers = markers;
+        this.parameterizeLiterals = parameterizeLiterals;
+        this.arrayBinding = arrayBinding && markers != null && dialect.supportsArrayBinding();
+    }
+
+    public static String toSql(Query query) {
+        StringBuilder out = new StringBuilder(64);
+
+        try {
+            DEFAULT.render(query, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // A StringBuilder does not throw.
+        }
+
+        return out.toString();
+    }
+
+    static String toSql(Predicate predicate) {
+        StringBuilder out = new StringBuilder(32);
+
+        try {
+            DEFAULT.render(predicate, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return out.toString();
+    }
+
+    static String toSql(TableReference table) {
+        StringBuilder out = new StringBuilder(16);
+
+        try {
+            DEFAULT.render(table, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return out.toString();
+    }
+
+    static String toSql(JoinClause join) {
+        StringBuilder out = new StringBuilder(32);
+
+        try {
+            DEFAULT.render(join, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return out.toString();
+    }
+
+    public void render(Query query, Appendable out) throws IOException {
+        write(query, out);
+    }
+
+    public void render(TableReference table, Appendable out) throws IOException {
+        write(table, out);
+    }
+
+    public void render(JoinClause join, Appendable out) throws IOException {
+        write(join, out);
+    }
+
+    public void render(Predicate predicate, Appendable out) throws IOException {
+        write(predicate, out);
+    }
+
+    private void write(Object node, Appendable out) throws IOException {
+        Output output = new Output(out);
+        output.stack.push(node);
+
+        while (!output.stack.isEmpty()) {
+            Object item = output.stack.pop();
+
+            if (item instanceof CharSequence) {
+                out.append((CharSequence)item);
+                continue;
+            } else if (item instanceof Value) {
+                render((Value)item, out);
+                continue;
+            }
+
+            if (item instanceof Query) {
+                expand((Query)item, output);
+            } else if (item instanceof TableReference) {
+                expand((TableReference)item, output);
+            } else if (item instanceof JoinClause) {
+                expand((JoinClause)item, output);
+            } else {
+                expand((Predicate)item, output);
+            }
+
+            output.defer();
+        }
+    }
+
+    private void expand(Query query, Output out) throws IOException {
+        out.append(query.isDistinct() ? "SELECT DISTINCT" : "SELECT");
+
+        /* SQL Server limits without offset with TOP.
+        */
+        boolean top = dialect == Dialect.SQLSERVER && query.getLimit() != null && query.getOffset() == null;
+
+        if (top) {
+            out.append(" TOP (");
+            out.add(query.getLimit());
+            out.append(")");
+        }
+
+        if (query.getSelect().isEmpty()) {
+            out.append(" *");
+        } else {
+            appendList(query.getSelect(), out);
+        }
+
+        for (int idx = 0; idx < query.getFrom().size(); idx++) {
+            out.append(idx == 0 ? " FROM " : ", ");
+            out.add(query.getFrom().get(idx));
+        }
+
+        for (JoinClause join : query.getJoins()) {
+            out.append(" ");
+            out.add(join);
+        }
+
+        for (int idx = 0; idx < query.getWhere().size(); idx++) {
+            out.append(idx == 0 ? " WHERE " : " AND ");
+            out.add(query.getWhere().get(idx));
+        }
+
+        if (!query.getGroupBy().isEmpty()) {
+            out.append(" GROUP BY");
+            appendList(query.getGroupBy(), out);
+        }
+
+        if (query.getOrderBy() != null) {
+            OrderBy orderBy = query.getOrderBy();
+            String direction = orderBy.isAscending() ? " ASC" : " DESC";
+            out.append(" ORDER BY");
+
+            if (orderBy.isDirectionPerColumn()) {
+                for (int idx = 0; idx < orderBy.getColumns().size(); idx++) {
+                    out.append(idx == 0 ? " " : ", ").append(orderBy.getColumns().get(idx)).append(direction);
+                }
+            } else {
+                appendList(orderBy.getColumns(), out);
+                out.append(direction);
+            }
+        }
+
+        if (!top && (query.getLimit() != null || query.getOffset() != null)) {
+            expandLimit(query, out);
+        }
+    }
+
+    /* Expanded row comparison from column idx on: '( a > 1 OR ( a = 1 AND b > 2 ) )'.
+    */
+    private void expandRowComparison(RowComparison row, int idx, Output out) throws IOException {
+        String column = row.getColumns().get(idx);
+
+        if (idx == row.getColumns().size() - 1) {
+            out.append(column).append(" ").append(row.getOperator()).append(" ");
+            out.add(row.getValues().get(idx));
+            return;
+        }
+
+        out.append("( ").append(column).append(" ").append(row.getOperator()).append(" ");
+        out.add(row.getValues().get(idx));
+        out.append(" OR ( ").append(column).append(" = ");
+        out.add(row.getValues().get(idx));
+        out.append(" AND ");
+        expandRowComparison(row, idx + 1, out);
+        out.append(" ) )");
+    }
+
+    /* LIMIT/OFFSET for the databases which support it, otherwise the standard OFFSET/FETCH FIRST.
+    */
+    private void expandLimit(Query query, Output out) throws IOException {
+        switch (dialect) {
+            case POSTGRESQL:
+            case H2:
+            case HSQLDB:
+            case MYSQL:
+                if (query.getLimit() != null) {
+                    out.append(" LIMIT ");
+                    out.add(query.getLimit());
+                } else if (dialect == Dialect.MYSQL) {
+                    out.append(" LIMIT 18446744073709551615"); // MySQL has no OFFSET without LIMIT.
+                }
+
+                if (query.getOffset() != null) {
+                    out.append(" OFFSET ");
+                    out.add(query.getOffset());
+                }
+                break;
+            default:
+                /* SQL Server only accepts OFFSET after an ORDER BY. Without an offset it uses TOP (see render).
+                */
+                if (dialect == Dialect.SQLSERVER && query.getOrderBy() == null) {
+                    out.append(" ORDER BY (SELECT NULL)");
+                }
+
+                if (query.getOffset() != null) {
+                    out.append(" OFFSET ");
+                    out.add(query.getOffset());
+                    out.append(" ROWS");
+                }
+
+                if (query.getLimit() != null) {
+                    out.append(" FETCH FIRST ");
+                    out.add(query.getLimit());
+                    out.append(" ROWS ONLY");
+                }
+        }
+    }
+
+    /* Row constructor of the values: 'VALUES (1), (2)', 'VALUES ROW(1), ROW(2)' for MySQL. Oracle has no row
+    constructor, so its values are selected from DUAL.
+    */
+    private void expandValues(InValues in, Output out) throws IOException {
+        out.append(in.getColumn()).append(in.isNegated() ? " NOT IN (" : " IN (");
+
+        if (dialect == Dialect.ORACLE) {
+            for (int idx = 0; idx < in.getValues().size(); idx++) {
+                out.append("SELECT ");
+                out.add(in.getValues().get(idx));
+                out.append(idx < in.getValues().size() - 1 ? " FROM DUAL UNION ALL " : " FROM DUAL)");
+            }
+
+            return;
+        }
+
+        String row = dialect == Dialect.MYSQL ? "ROW(" : "(";
+        out.append("SELECT c FROM (VALUES ");
+
+        for (int idx = 0; idx < in.getValues().size(); idx++) {
+            out.append(row);
+            out.add(in.getValues().get(idx));
+            out.append(idx < in.getValues().size() - 1 ? "), " : ")");
+        }
+
+        out.append(") AS v(c))");
+    }
+
+    private void expand(TableReference table, Output out) throws IOException {
+        if (table.isSubquery()) {
+            out.append("(");
+            out.add(table.getSubquery());
+            out.append(") ").append(table.getAlias());
+        } else {
+            out.append(table.getTable()).append(" ").append(table.getAlias());
+        }
+    }
+
+    private void expand(JoinClause join, Output out) throws IOException {
+        out.append(join.getType().name()).append(" JOIN ");
+        out.add(join.getTable());
+        out.append(" ON ");
+        out.add(join.getCondition());
+    }
+
+    private void expand(Predicate predicate, Output out) throws IOException {
+        if (predicate instanceof Comparison) {
+            Comparison comparison = (Comparison)predicate;
+            out.append(comparison.getColumn()).append(" ").append(comparison.getOperator()).append(" ");
+            out.add(comparison.getValue());
+        } else if (predicate instanceof ColumnComparison) {
+            ColumnComparison comparison = (ColumnComparison)predicate;
+            out.append(comparison.getLeft()).append(" ").append(comparison.getOperator()).append(" ").append(comparison.getRight());
+        } else if (arrayBinding && predicate instanceof InList) {
+            expandArray(((InList)predicate).getColumn(), ((InList)predicate).getValues(), ((InList)predicate).isNegated(), out);
+        } else if (arrayBinding && predicate instanceof InValues) {
+            expandArray(((InValues)predicate).getColumn(), ((InValues)predicate).getValues(), ((InValues)predicate).isNegated(), out);
+        } else if (predicate instanceof InList) {
+            InList in = (InList)predicate;
+            out.append(in.getColumn()).append(in.isNegated() ? " NOT IN (" : " IN (");
+
+            for (int idx = 0; idx < in.getValues().size(); idx++) {
+                out.append(" ");
+                out.add(in.getValues().get(idx));
+
+                if (idx < in.getValues().size() - 1) {
+                    out.append(",");
+                }
+            }
+
+            out.append(" )");
+        } else if (predicate instanceof InValues) {
+            expandValues((InValues)predicate, out);
+        } else if (predicate instanceof IsNull) {
+            out.append(((IsNull)predicate).getColumn()).append(((IsNull)predicate).isNegated() ? " IS NOT NULL" : " IS NULL");
+        } else if (predicate instanceof PatternMatch) {
+            out.append(((PatternMatch)predicate).getColumn()).append(" LIKE ");
+            out.add(((PatternMatch)predicate).getPattern());
+        } else if (predicate instanceof InSubquery) {
+            out.append(((InSubquery)predicate).getColumn()).append(" IN (");
+            out.add(((InSubquery)predicate).getQuery());
+            out.append(")");
+        } else if (predicate instanceof Junction) {
+            Junction junction = (Junction)predicate;
+            out.append("( ");
+
+            for (int idx = 0; idx < junction.getPredicates().size(); idx++) {
+                out.add(junction.getPredicates().get(idx));
+                out.append(" ");
+
+                if (idx < junction.getPredicates().size() - 1) {
+                    out.append(junction.isOr() ? "OR " : "AND ");
+                }
+            }
+
+            out.append(")");
+        } else if (predicate instanceof RowComparison) {
+            RowComparison row = (RowComparison)predicate;
+
+            if (row.getColumns().size() == 1 || !dialect.supportsRowValues()) {
+                expandRowComparison(row, 0, out);
+            } else {
+                for (int idx = 0; idx < row.getColumns().size(); idx++) {
+                    out.append(idx == 0 ? "(" : ", ").append(row.getColumns().get(idx));
+                }
+
+                out.append(") ").append(row.getOperator()).append(" (");
+
+                for (int idx = 0; idx < row.getValues().size(); idx++) {
+                    out.add(row.getValues().get(idx));
+                    out.append(idx < row.getValues().size() - 1 ? ", " : ")");
+                }
+            }
+        } else if (predicate instanceof Exists) {
+            out.append(((Exists)predicate).isNegated() ? "NOT EXISTS (" : "EXISTS (");
+            out.add(((Exists)predicate).getQuery());
+            out.append(")");
+        } else if (predicate instanceof RawPredicate) {
+            out.append(((RawPredicate)predicate).getSql());
+        } else {
+            throw new IllegalArgumentException("Unknown predicate: " + predicate.getClass().getName());
+        }
+    }
+
+    private void expandArray(String column, List<Value> values, boolean negated, Output out) throws IOException {
+        if (dialect == Dialect.HSQLDB) {
+            out.append(column).append(negated ? " NOT IN (UNNEST(?))" : " IN (UNNEST(?))");
+        } else {
+            out.append(column).append(negated ? " <> ALL(?)" : " = ANY(?)");
+        }
+
+        out.add(new ArrayValue(values));
+    }
+
+    public void render(Value value, Appendable out) throws IOException {
+        if (value instanceof Literal && !parameterizeLiterals) {
+            out.append(((Literal)value).getText());
+        } else if (value instanceof Literal || value instanceof Parameter) {
+            out.append('?');
+
+            if (markers != null) {
+                markers.add(value);
+            }
+        } else if (value instanceof ArrayValue) {
+            markers.add(value);
+        } else {
+            throw new IllegalArgumentException("Unknown value: " + value.getClass().getName());
+        }
+    }
+
+    private void appendList(List<String> items, Output out) throws IOException {
+        for (int idx = 0; idx < items.size(); idx++) {
+            out.append(" ").append(items.get(idx));
+
+            if (idx < items.size() - 1) {
+                out.append(",");
+            }
+        }
+    }
+
+    /* Output of a tree. While a node is expanded, its text and values are written straight to the output until its first
+    child node. From then on its parts are collected as work items (text, values and nodes, without copying the text),
+    which are pushed on the stack when the node is expanded (see defer), so they are written after the child.
+    */
+    private class Output {
+        final Appendable out;
+        final Deque<Object> stack = new ArrayDeque<>();
+        final List<Object> deferred = new ArrayList<>();
+
+        Output(Appendable out) {
+            this.out = out;
+        }
+
+        Output append(CharSequence text) throws IOException {
+            if (deferred.isEmpty()) {
+                out.append(text);
+            } else {
+                deferred.add(text);
+            }
+
+            return this;
+        }
+
+        void add(Object item) throws IOException {
+            if (item instanceof Value && deferred.isEmpty()) {
+                render((Value)item, out);
+            } else {
+                deferred.add(item);
+            }
+        }
+
+        void defer() {
+            for (int idx = deferred.size() - 1; idx >= 0; idx--) {
+                stack.push(deferred.get(idx));
+            }
+
+            deferred.clear();
+        }
+    }
+}
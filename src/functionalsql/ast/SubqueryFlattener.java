@@ -0,0 +1,212 @@
+package functionalsql.ast;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rewrite which merges nested queries in the FROM clause into the query which contains them, e.g.
+ *
+ * SELECT * FROM a t0, (SELECT * FROM b t0 WHERE t0.v = 1) t1 WHERE t0.id = t1.id
+ *
+ * becomes
+ *
+ * SELECT * FROM a t0, b t2 WHERE t0.id = t2.id AND t2.v = 1
+ *
+ * The tables of the nested query get new aliases. A nested query is merged only if it selects all columns and has no
+ * distinct, grouping, ordering, limit, ANSI joins, raw SQL or correlated subqueries (exists), and if its columns are
+ * qualified with an alias or it has one table. A nested query with more than one table is only merged if the query
+ * does not refer to its columns (t1.id): without the schema it is unknown which of its tables has the column. Nested
+ * queries in ANSI joins are not merged, because that would change the semantics of outer joins.
+ */
+public final class SubqueryFlattener {
+    private final static Pattern ALIAS = Pattern.compile("t([0-9]+)");
+
+    private SubqueryFlattener() {
+    }
+
+    /**
+     * Returns the query with its nested queries merged, or the same query if no nested query can be merged. Nested
+     * queries at every level (also in IN predicates) are flattened, bottom up and without recursion (see Nodes.rewrite).
+     */
+    public static Query flatten(Query query) {
+        return Nodes.rewrite(query, SubqueryFlattener::mergeSubqueries, false);
+    }
+
+    /* Merges the nested queries in the FROM clause of the query, which are flattened already.
+    */
+    private static Query mergeSubqueries(Query query) {
+        for (int idx = 0; idx < query.getFrom().size(); idx++) {
+            TableReference table = query.getFrom().get(idx);
+
+            if (table.isSubquery() && canMerge(query, table)) {
+                query = merge(query, idx);
+                idx += table.getSubquery().getFrom().size() - 1;
+            }
+        }
+
+        return query;
+    }
+
+    private static boolean canMerge(Query query, TableReference table) {
+        Query subquery = table.getSubquery();
+
+        if (subquery.isDistinct() || !subquery.getSelect().isEmpty() || !subquery.getGroupBy().isEmpty() ||
+                subquery.getOrderBy() != null || subquery.getLimit() != null || subquery.getOffset() != null ||
+                !subquery.getJoins().isEmpty() || subquery.getFrom().isEmpty()) {
+            return false;
+        }
+
+        boolean[] unqualified = new boolean[1];
+
+        for (Predicate predicate : subquery.getWhere()) {
+            if (Columns.isOpaque(predicate)) {
+                return false;
+            }
+
+            Columns.map(predicate, c -> {
+                unqualified[0] |= Columns.isUnqualified(c);
+                return c;
+            });
+        }
+
+        if (unqualified[0] && subquery.getFrom().size() > 1) {
+            return false;
+        }
+
+        if (subquery.getFrom().size() > 1 && refersTo(query, table.getAlias())) {
+            return false;
+        }
+
+        /* The columns of the nested query as a whole (t1.*) can not be mapped on one table.
+        */
+        for (String column : query.getSelect()) {
+            if (column.contains(table.getAlias() + ".*")) {
+                return false;
+            }
+        }
+
+        for (Predicate predicate : query.getWhere()) {
+            if (Columns.isOpaque(predicate)) {
+                return false;
+            }
+        }
+
+        for (JoinClause join : query.getJoins()) {
+            if (Columns.isOpaque(join.getCondition())) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /* True if a column of the query (outside nested queries) is qualified with the alias.
+    */
+    private static boolean refersTo(Query query, String alias) {
+        Map<String, String> marker = Collections.singletonMap(alias, "#");
+        boolean[] refers = new boolean[1];
+        UnaryOperator<String> column = c -> {
+            refers[0] |= !Columns.rename(c, marker, null).equals(c);
+            return c;
+        };
+
+        Columns.map(query.getSelect(), column);
+        Columns.map(query.getGroupBy(), column);
+
+        if (query.getOrderBy() != null) {
+            Columns.map(query.getOrderBy().getColumns(), column);
+        }
+
+        for (Predicate predicate : query.getWhere()) {
+            Columns.map(predicate, column);
+        }
+
+        for (JoinClause join : query.getJoins()) {
+            Columns.map(join.getCondition(), column);
+        }
+
+        return refers[0];
+    }
+
+    private static Query merge(Query query, int index) {
+        TableReference table = query.getFrom().get(index);
+        Query subquery = table.getSubquery();
+
+        /* New aliases for the tables of the nested query, numbered after the highest alias of the query.
+        */
+        int next = nextAlias(query);
+        Map<String, String> aliases = new HashMap<>();
+        List<TableReference> tables = new ArrayList<>(subquery.getFrom().size());
+
+        for (TableReference t : subquery.getFrom()) {
+            String alias = "t" + next++;
+            aliases.put(t.getAlias(), alias);
+            tables.add(t.isSubquery() ? new TableReference(t.getSubquery(), alias) : new TableReference(t.getTable(), alias));
+        }
+
+        String driveTable = aliases.getOrDefault("t0", tables.get(0).getAlias());
+        String single = tables.size() == 1 ? tables.get(0).getAlias() : null;
+
+        List<TableReference> from = new ArrayList<>(query.getFrom());
+        from.remove(index);
+        from.addAll(index, tables);
+
+        List<Predicate> where = new ArrayList<>();
+        Map<String, String> outer = new HashMap<>();
+        outer.put(table.getAlias(), driveTable);
+
+        for (Predicate predicate : query.getWhere()) {
+            where.add(Columns.map(predicate, c -> Columns.rename(c, outer, null)));
+        }
+
+        for (Predicate predicate : subquery.getWhere()) {
+            where.add(Columns.map(predicate, c -> Columns.rename(c, aliases, single)));
+        }
+
+        List<JoinClause> joins = new ArrayList<>(query.getJoins().size());
+
+        for (JoinClause join : query.getJoins()) {
+            joins.add(new JoinClause(join.getType(), join.getTable(), Columns.map(join.getCondition(), c -> Columns.rename(c, outer, null))));
+        }
+
+        OrderBy orderBy = query.getOrderBy();
+
+        if (orderBy != null) {
+            orderBy = new OrderBy(Columns.map(orderBy.getColumns(), c -> Columns.rename(c, outer, null)), orderBy.isAscending(), orderBy.isDirectionPerColumn());
+        }
+
+        return query.toBuilder()
+                .select(Columns.map(query.getSelect(), c -> Columns.rename(c, outer, null)))
+                .from(from)
+                .joins(joins)
+                .where(where)
+                .groupBy(Columns.map(query.getGroupBy(), c -> Columns.rename(c, outer, null)))
+                .orderBy(orderBy)
+                .build();
+    }
+
+    private static int nextAlias(Query query) {
+        int next = 0;
+        List<TableReference> tables = new ArrayList<>(query.getFrom());
+
+        for (JoinClause join : query.getJoins()) {
+            tables.add(join.getTable());
+        }
+
+        for (TableReference table : tables) {
+            Matcher matcher = ALIAS.matcher(table.getAlias());
+
+            if (matcher.matches()) {
+                next = Math.max(next, Integer.parseInt(matcher.group(1)) + 1);
+            }
+        }
+
+        return next;
+    }
+}
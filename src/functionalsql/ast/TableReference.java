@@ -0,0 +1,57 @@
+package functionalsql.ast;
+
+import java.util.Objects;
+
+/**
+ * Table (e.g. 'a t0') or nested query (e.g. '(SELECT ...) t1') with its alias.
+ */
+public final class TableReference {
+    private final String table, alias;
+    private final Query subquery;
+    private final int hash;
+
+    public TableReference(String table, String alias) {
+        this.table = table;
+        this.alias = alias;
+        this.subquery = null;
+        this.hash = Objects.hash(table, alias, null);
+    }
+
+    public TableReference(Query subquery, String alias) {
+        this.table = null;
+        this.alias = alias;
+        this.subquery = subquery;
+        this.hash = Objects.hash(null, alias, subquery);
+    }
+
+    /**
+     * Name of the table or null if the reference is a nested query.
+     */
+    public String getTable() {
+        return table;
+    }
+
+    public Query getSubquery() {
+        return subquery;
+    }
+
+    public String getAlias() {
+        return alias;
+    }
+
+    public boolean isSubquery() {
+        return subquery != null;
+    }
+
+    public boolean equals(Object other) {
+        return other instanceof TableReference && Nodes.equal(this, other);
+    }
+
+    public int hashCode() {
+        return hash;
+    }
+
+    public String toString() {
+        return SqlRenderer.toSql(this);
+    }
+}
@@ -0,0 +1,7 @@
+package functionalsql.ast;
+
+/**
+ * Value in a predicate, e.g. the 1 in 'v = 1'.
+ */
+public abstract class Value {
+}
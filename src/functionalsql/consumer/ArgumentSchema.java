@@ -0,0 +1,132 @@
+package functionalsql.consumer;
+
+import functionalsql.Function;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable description of the arguments of a function class.
+ *
+ * For every argument position the schema holds at most one function consumer and one token consumer, together with
+ * the argument position which follows after the consumer consumed a value. The schema is built once per function
+ * class (see Function.buildArguments) and is shared by all instances of that class.
+ */
+public final class ArgumentSchema {
+    private final Argument[] arguments;
+
+    private ArgumentSchema(Argument[] arguments) {
+        this.arguments = arguments;
+    }
+
+    public boolean isDefined(int argument) {
+        return argument < arguments.length && arguments[argument] != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public Consumer<Function, Function> getFunctionConsumer(int argument) {
+        return (Consumer<Function, Function>)arguments[argument].functionConsumer;
+    }
+
+    @SuppressWarnings("unchecked")
+    public Consumer<Function, String> getTokenConsumer(int argument) {
+        return (Consumer<Function, String>)arguments[argument].tokenConsumer;
+    }
+
+    /**
+     * Argument position which follows after the function consumer (or the token consumer) of the argument consumed a value.
+     */
+    public int getNextArgument(int argument, boolean function) {
+        return function ? arguments[argument].nextAfterFunction : arguments[argument].nextAfterToken;
+    }
+
+    public boolean isMandatory(int argument) {
+        return arguments[argument].mandatory;
+    }
+
+    public boolean takesAStatement(int argument) {
+        return isDefined(argument) && arguments[argument].takesAStatement;
+    }
+
+    public boolean expectsTableOrColumn(int argument) {
+        return isDefined(argument) && arguments[argument].tokenConsumer instanceof TableOrColumnConsumer;
+    }
+
+    private static class Argument {
+        Consumer<?, ?> functionConsumer, tokenConsumer;
+        int nextAfterFunction, nextAfterToken;
+        boolean mandatory, takesAStatement;
+    }
+
+    public static class Builder {
+        private final TreeMap<Integer, Consumer<?, ?>[]> consumersPerArgument = new TreeMap<>();
+        private final Map<Consumer<?, ?>, Integer> nextArgumentForConsumer = new HashMap<>();
+
+        public void build(Consumer<?, ?> consumer) {
+            int argument = consumersPerArgument.isEmpty() ? 0 : consumersPerArgument.lastKey() + 1;
+            build(argument, consumer);
+        }
+
+        public void build(int argument, Consumer<?, ?> consumer) {
+            Consumer<?, ?>[] consumers = consumersPerArgument.computeIfAbsent(argument, v -> new Consumer<?, ?>[2]);
+            int idx = consumer instanceof FunctionConsumer ? 0 : 1;
+
+            if(consumers[idx] != null) {
+                throw new RuntimeException("Consumer already defined.");
+            }
+
+            consumers[idx] = consumer;
+        }
+
+        /**
+         * Shifts the consumers of the argument one position and puts the consumer in its place.
+         */
+        public void buildAndReplace(int argument, Consumer<?, ?> consumer) {
+            consumersPerArgument.put(argument + 1, consumersPerArgument.get(argument));
+            consumersPerArgument.remove(argument);
+            build(argument, consumer);
+        }
+
+        public void setNextStepForConsumer(Consumer<?, ?> consumer, int nextStep) {
+            nextArgumentForConsumer.put(consumer, nextStep);
+        }
+
+        public ArgumentSchema create() {
+            int size = consumersPerArgument.isEmpty() ? 0 : consumersPerArgument.lastKey() + 1;
+            Argument[] arguments = new Argument[size];
+
+            for (Map.Entry<Integer, Consumer<?, ?>[]> entry : consumersPerArgument.entrySet()) {
+                Argument argument = new Argument();
+                argument.functionConsumer = entry.getValue()[0];
+                argument.tokenConsumer = entry.getValue()[1];
+
+                for (Consumer<?, ?> consumer : entry.getValue()) {
+                    if (consumer != null) {
+                        argument.mandatory |= consumer.isMandatory();
+                        argument.takesAStatement |= consumer.isConsumingAStatement();
+                    }
+                }
+
+                argument.nextAfterFunction = nextArgument(entry.getKey(), argument.functionConsumer);
+                argument.nextAfterToken = nextArgument(entry.getKey(), argument.tokenConsumer);
+
+                arguments[entry.getKey()] = argument;
+            }
+
+            return new ArgumentSchema(arguments);
+        }
+
+        private int nextArgument(int argument, Consumer<?, ?> consumer) {
+            if (consumer == null) {
+                return argument;
+            }
+
+            if (nextArgumentForConsumer.containsKey(consumer)) {
+                return nextArgumentForConsumer.get(consumer);
+            }
+
+            return consumer.isSingleValue() ? argument + 1 : argument;
+        }
+    }
+}
@@ -1,40 +1,32 @@
 package functionalsql.consumer;
 
 import functionalsql.Function;
-import functionalsql.FunctionalSQLCompiler;
 
-public abstract class Consumer<T> {
+/**
+ * Declaration of an argument of a function. Consumers are part of the ArgumentSchema of a function class and are
+ * shared by all instances of that class: the processor receives the function instance which consumes the argument.
+ */
+public abstract class Consumer<F extends Function, T> {
 
-    private boolean singleValue=false, mandatory=false, consumed=false, consumesStatement=false;
+    private boolean singleValue=false, mandatory=false, consumesStatement=false;
 
-    private final Function function;
+    private final Processor<F, T> processor;
 
-    private final Processor<T> processor;
-
-    public Consumer(Function function, Processor<T> processor) {
-        this.function = function;
+    public Consumer(Processor<F, T> processor) {
         this.processor = processor;
     }
 
-    public Function getFunction() {
-        return function;
-    }
-
-    public FunctionalSQLCompiler getCompiler() {
-        return function.getCompiler();
-    }
-
-    public Consumer<T> singleValue() {
+    public Consumer<F, T> singleValue() {
         singleValue = true;
         return this;
     }
 
-    public Consumer<T> mandatory() {
+    public Consumer<F, T> mandatory() {
         mandatory = true;
         return this;
     }
 
-    public Consumer<T> consumesStatement() {
+    public Consumer<F, T> consumesStatement() {
         consumesStatement = true;
         return this;
     }
@@ -45,18 +37,13 @@ public abstract class Consumer<T> {
 
     public boolean isMandatory() { return mandatory; }
 
-    public boolean hasConsumed() {
-        return consumed;
-    }
-
     public boolean isConsumingAStatement() {
         return consumesStatement;
     }
 
-    public void consume(T token) throws Exception {
-        consumed = true;
+    public void consume(F function, T token) throws Exception {
         if(processor != null) {
-            processor.process(token);
+            processor.process(function, token);
         }
     }
 }
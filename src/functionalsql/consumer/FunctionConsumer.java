@@ -4,41 +4,40 @@ import functionalsql.Function;
 import functionalsql.FunctionalSQLCompiler;
 
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 
-public class FunctionConsumer extends Consumer<Function> {
+public class FunctionConsumer<F extends Function> extends Consumer<F, Function> {
     private List<Class<? extends Function>> functions = new ArrayList<>();
 
-    public FunctionConsumer(Function function) {
-        super(function, null);
+    public FunctionConsumer() {
+        super(null);
     }
 
-    public FunctionConsumer(Function function, Processor<Function> processor) {
-        super(function, processor);
+    public FunctionConsumer(Processor<F, Function> processor) {
+        super(processor);
     }
 
-    public FunctionConsumer expect(Class<? extends Function> functionClass) {
+    public FunctionConsumer<F> expect(Class<? extends Function> functionClass) {
         functions.add(functionClass);
         return this;
     }
 
-    public void consume(Function function) throws Exception {
+    public void consume(F function, Function argument) throws Exception {
         boolean allowed=false;
 
         for(Class<? extends Function> clzz : functions) {
-            if(clzz.isAssignableFrom(function.getClass())) {
+            if(clzz.isAssignableFrom(argument.getClass())) {
                 allowed = true;
                 break;
             }
         }
 
         if(functions.size() > 0 && !allowed) {
-            getCompiler().syntaxError(FunctionalSQLCompiler.ERR_CANNOT_USE_FUNCTION_AS_ARGUMENT_OF_FUNCTION,
-                    getCompiler().getFSNameForFunction(function),
-                    getCompiler().getFSNameForFunction(getFunction()));
+            function.getContext().syntaxError(FunctionalSQLCompiler.ERR_CANNOT_USE_FUNCTION_AS_ARGUMENT_OF_FUNCTION,
+                    function.getContext().getFSNameForFunction(argument),
+                    function.getContext().getFSNameForFunction(function));
         }
 
-        super.consume(function);
+        super.consume(function, argument);
     }
-}
\ No newline at end of file
+}
@@ -1,7 +1,9 @@
 package functionalsql.consumer;
 
+import functionalsql.Function;
+
 @FunctionalInterface
-public interface Processor<T> {
+public interface Processor<F extends Function, T> {
 
-    void process(T t) throws Exception;
+    void process(F function, T t) throws Exception;
 }
@@ -2,8 +2,8 @@ package functionalsql.consumer;
 
 import functionalsql.Function;
 
-public class TableOrColumnConsumer extends TokenConsumer {
-    public TableOrColumnConsumer(Function function, Processor<String> processor) {
-        super(function, processor);
+public class TableOrColumnConsumer<F extends Function> extends TokenConsumer<F> {
+    public TableOrColumnConsumer(Processor<F, String> processor) {
+        super(processor);
     }
 }
@@ -2,8 +2,8 @@ package functionalsql.consumer;
 
 import functionalsql.Function;
 
-public class TokenConsumer extends Consumer<String> {
-    public TokenConsumer(Function function, Processor<String> processor) {
-        super(function, processor);
+public class TokenConsumer<F extends Function> extends Consumer<F, String> {
+    public TokenConsumer(Processor<F, String> processor) {
+        super(processor);
     }
 }
@@ -0,0 +1,62 @@
+package functionalsql.functions;
+
+import functionalsql.Function;
+import functionalsql.ast.Value;
+import functionalsql.consumer.ArgumentSchema;
+import functionalsql.consumer.TokenConsumer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static functionalsql.FunctionalSQLCompiler.ERR_AFTER_ALREADY_DEFINED;
+import static functionalsql.FunctionalSQLCompiler.ERR_AFTER_NEEDS_A_VALUE_PER_COLUMN;
+import static functionalsql.FunctionalSQLCompiler.ERR_PARAMETER_AS_TABLE_OR_COLUMN;
+import static functionalsql.FunctionalSQLCompiler.ERR_VALUE_SHOULD_BE_QUOTED;
+
+/**
+ * Syntax: after( column1, column2, ..., value1, value2, ... )
+ *
+ * Keyset pagination: selects the rows after the row with the values (the last row of the previous page), e.g.
+ * 'a after(b, c, 1, 2) limit(10)' -> 'SELECT * FROM a t0 WHERE (b, c) > (1, 2) ORDER BY b ASC, c ASC FETCH FIRST 10 ROWS ONLY'.
+ *
+ * The rows are ordered on the columns. With desc on the same columns the rows before the values are selected.
+ */
+public class After extends Function {
+    private List<String> arguments = new ArrayList<>();
+
+    protected void buildArguments(ArgumentSchema.Builder arguments) {
+        arguments.build(new TokenConsumer<After>((after, token) -> after.arguments.add(token)).mandatory());
+    }
+
+    public void execute() throws Exception {
+        if (arguments.size() % 2 != 0) {
+            getContext().syntaxError(ERR_AFTER_NEEDS_A_VALUE_PER_COLUMN, String.join(", ", arguments));
+        }
+
+        if (getContext().getStatement().hasSeek()) {
+            getContext().syntaxError(ERR_AFTER_ALREADY_DEFINED);
+        }
+
+        int size = arguments.size() / 2;
+        List<String> columns = new ArrayList<>(size);
+        List<Value> values = new ArrayList<>(size);
+
+        for (String column : arguments.subList(0, size)) {
+            if (getContext().isParameter(column)) {
+                getContext().syntaxError(ERR_PARAMETER_AS_TABLE_OR_COLUMN, column);
+            }
+
+            columns.add(getContext().resolveColumn(column));
+        }
+
+        for (String value : arguments.subList(size, arguments.size())) {
+            if (!getContext().isNummeric(value) && !getContext().isQuoted(value) && !getContext().isParameter(value)) {
+                getContext().syntaxError(ERR_VALUE_SHOULD_BE_QUOTED, value);
+            }
+
+            values.add(getContext().toValue(value));
+        }
+
+        getContext().getStatement().setSeek(columns, values);
+    }
+}
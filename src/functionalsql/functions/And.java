@@ -1,8 +1,5 @@
 package functionalsql.functions;
 
-import functionalsql.Function;
-import functionalsql.consumer.FunctionConsumer;
-
 public class And extends Or {
     public And() {
         super(false);
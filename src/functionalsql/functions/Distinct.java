@@ -1,6 +1,7 @@
 package functionalsql.functions;
 
 import functionalsql.Function;
+import functionalsql.consumer.ArgumentSchema;
 import functionalsql.consumer.TableOrColumnConsumer;
 
 import java.util.ArrayList;
@@ -17,18 +18,18 @@ import static functionalsql.FunctionalSQLCompiler.ERR_SELECT_ALREADY_DEFINED;
 public class Distinct extends Function {
     private List<String> columns = new ArrayList<>();
 
-    public Distinct() {
+    protected void buildArguments(ArgumentSchema.Builder arguments) {
         /* Check if argument is a table. If so, all fields of table are selected.
         Argument can also be a reference when the table was referred with the ref( table, occ ) function.
         */
-        build(new TableOrColumnConsumer(this, token -> {
-            if (getCompiler().getStatement().isTable(token)) {
-                token = getCompiler().getStatement().getAlias(token) + ".*";
-            } else if (getCompiler().getStatement().isAlias(token)) {
+        arguments.build(new TableOrColumnConsumer<Distinct>((distinct, token) -> {
+            if (distinct.getContext().getStatement().isTable(token)) {
+                token = distinct.getContext().getStatement().getAlias(token) + ".*";
+            } else if (distinct.getContext().getStatement().isAlias(token)) {
                 token = token + ".*";
             }
 
-            columns.add(token);
+            distinct.columns.add(token);
         }).mandatory());
     }
 
@@ -37,20 +38,10 @@ public class Distinct extends Function {
             return;
         }
 
-        if(!getCompiler().getStatement().isVirginSelectClause()) {
-            getCompiler().syntaxError(ERR_SELECT_ALREADY_DEFINED, getCompiler().getStatement().getSelectClause());
+        if(!getContext().getStatement().isVirginSelectClause()) {
+            getContext().syntaxError(ERR_SELECT_ALREADY_DEFINED, getContext().getStatement().getSelectClause());
         }
 
-        getCompiler().getStatement().setSelectClause("SELECT DISTINCT");
-
-        /* Expand the select clause.
-        */
-        for (int idx = 0; idx < columns.size(); idx++) {
-            getCompiler().getStatement().setSelectClause(getCompiler().getStatement().getSelectClause() + " " + columns.get(idx));
-
-            if (idx < columns.size() - 1) {
-                getCompiler().getStatement().setSelectClause(getCompiler().getStatement().getSelectClause() + ",");
-            }
-        }
+        getContext().getStatement().setSelectClause(columns, true);
     }
 }
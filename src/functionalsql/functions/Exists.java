@@ -0,0 +1,105 @@
+package functionalsql.functions;
+
+import functionalsql.Function;
+import functionalsql.Relation;
+import functionalsql.ast.Aliases;
+import functionalsql.ast.ColumnComparison;
+import functionalsql.ast.Predicate;
+import functionalsql.ast.Query;
+import functionalsql.ast.TableReference;
+import functionalsql.consumer.ArgumentSchema;
+import functionalsql.consumer.FunctionConsumer;
+import functionalsql.consumer.TokenConsumer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static functionalsql.FunctionalSQLCompiler.ERR_NO_JOIN_COLUMNS_DEFINED_AND_NO_RELATION_FOUND;
+
+/**
+ Syntax:
+ exists( table )
+ exists( table , columnDriveTable )
+ exists( table , columnDriveTable , columnTable )
+ exists( (statement) , ... )
+
+ Rows of the drive table with a matching row in the table or statement (a semi join), e.g. 'a exists(b)' ->
+ 'SELECT * FROM a t0 WHERE EXISTS (SELECT 1 FROM b t1 WHERE t1.a_id = t0.id)'. The columns are taken from the relation
+ between the drive table and the table (or the drive table of the statement) if they are not given.
+ */
+public class Exists extends Function {
+    private boolean negated;
+
+    private String table, alias, columnDriveTable, columnTable;
+
+    private Statement statement;
+
+    public Exists() {
+    }
+
+    public Exists(boolean negated) {
+        this.negated = negated;
+    }
+
+    protected void buildArguments(ArgumentSchema.Builder arguments) {
+        /* The alias is reserved in the statement while parsing, so the tables of the subquery get aliases which are
+        not used by the statement for the tables before it.
+        */
+        arguments.build(0, new FunctionConsumer<Exists>((exists, function) -> {
+            exists.statement = (Statement)function;
+            exists.table = exists.statement.getDriveTableOfQuery();
+            exists.alias = exists.getContext().getStatement().getAlias(exists.statement);
+        }).expect(Statement.class).singleValue().mandatory());
+        arguments.build(0, new TokenConsumer<Exists>((exists, token) -> {
+            exists.getContext().checkTableOrColumnFormat(token);
+            exists.table = token;
+            exists.alias = exists.getContext().getStatement().reserveAlias();
+        }).singleValue().mandatory());
+        arguments.build(1, new TokenConsumer<Exists>((exists, token) -> {
+            exists.getContext().checkTableOrColumnFormat(token);
+            exists.columnDriveTable = token;
+        }).singleValue());
+        arguments.build(2, new TokenConsumer<Exists>((exists, token) -> {
+            exists.getContext().checkTableOrColumnFormat(token);
+            exists.columnTable = token;
+        }).singleValue());
+    }
+
+    public void execute() throws Exception {
+        String driveTable = getContext().getStatement().getDriveTableOfQuery();
+
+        if (columnTable == null) {
+            Relation relation = getContext().getRelation(driveTable, columnDriveTable, table);
+
+            if (relation == null) {
+                getContext().syntaxError(ERR_NO_JOIN_COLUMNS_DEFINED_AND_NO_RELATION_FOUND);
+            }
+
+            columnTable = relation.getColumn(table);
+
+            if (columnDriveTable == null) {
+                columnDriveTable = relation.getColumn(driveTable);
+            }
+        }
+
+        /* The subquery gets the reserved alias for its drive table (t0) and the aliases after it for its other tables.
+        */
+        int offset = getContext().aliasToNumber(alias);
+        Query query;
+
+        if (statement != null) {
+            query = Aliases.shift(statement.getQuery(), offset);
+        } else {
+            query = Query.builder().from(Collections.singletonList(new TableReference(table, alias))).build();
+        }
+
+        List<Predicate> where = new ArrayList<>(query.getWhere().size() + 1);
+        where.add(new ColumnComparison(alias + "." + columnTable, "=", "t0." + columnDriveTable));
+        where.addAll(query.getWhere());
+
+        query = query.toBuilder().select(Collections.singletonList("1")).where(where).build();
+
+        getContext().getStatement().addFilterClause(new functionalsql.ast.Exists(query, negated));
+    }
+}
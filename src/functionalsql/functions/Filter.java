@@ -1,6 +1,14 @@
 package functionalsql.functions;
 
 import functionalsql.Function;
+import functionalsql.ast.Comparison;
+import functionalsql.ast.InList;
+import functionalsql.ast.InValues;
+import functionalsql.ast.IsNull;
+import functionalsql.ast.Junction;
+import functionalsql.ast.Predicate;
+import functionalsql.ast.Value;
+import functionalsql.consumer.ArgumentSchema;
 import functionalsql.consumer.TableOrColumnConsumer;
 import functionalsql.consumer.TokenConsumer;
 
@@ -26,21 +34,23 @@ public class Filter extends Function {
     private List<String> values = new ArrayList<>();
 
     public Filter() {
-        build(new TableOrColumnConsumer(this, token -> column = token).singleValue().mandatory());
-        build(new TokenConsumer(this, token -> values.add(token)));
     }
 
     public Filter(boolean inclusive) {
-        this();
         this.inclusive = inclusive;
     }
 
+    protected void buildArguments(ArgumentSchema.Builder arguments) {
+        arguments.build(new TableOrColumnConsumer<Filter>((filter, token) -> filter.column = token).singleValue().mandatory());
+        arguments.build(new TokenConsumer<Filter>((filter, token) -> filter.values.add(token)));
+    }
+
     public void execute() throws Exception {
         filter(column, values, inclusive);
     }
 
     protected void filter(String column, List<String> values, boolean inclusive) throws Exception {
-        if(values.size() >= 1 && !getCompiler().isQuoted(values.get(0)) &&
+        if(values.size() >= 1 && !getContext().isQuoted(values.get(0)) &&
                 ( values.get(0).equals("<") ||
                         values.get(0).equals(">") ||
                         values.get(0).equals("<=") ||
@@ -58,14 +68,14 @@ public class Filter extends Function {
         String operator = values.remove(0);
 
         if(values.size() == 0) {
-            getCompiler().syntaxError(ERR_NEED_VALUE_WHEN_USING_OPERATOR_IN_FILTER);
+            getContext().syntaxError(ERR_NEED_VALUE_WHEN_USING_OPERATOR_IN_FILTER);
         }
 
         if(values.size() > 1) {
-            getCompiler().syntaxError(ERR_ONLY_ONE_VALUE_WHEN_USING_OPERATOR_IN_FILTER, values);
+            getContext().syntaxError(ERR_ONLY_ONE_VALUE_WHEN_USING_OPERATOR_IN_FILTER, values);
         }
 
-        getCompiler().getStatement().addFilterClause(String.format("%s %s %s", column, operator, values.get(0)));
+        getContext().getStatement().addFilterClause(new Comparison(column, operator, getContext().toValue(values.get(0))));
     }
 
     private void filterOnValues(String column, List<String> values, boolean inclusive) throws Exception {
@@ -74,38 +84,57 @@ public class Filter extends Function {
         assert (values != null);
 
         for(String value : values) {
-            if(!getCompiler().isNummeric(value) && !getCompiler().isQuoted(value)) {
-                getCompiler().syntaxError(ERR_VALUE_SHOULD_BE_QUOTED, value);
+            if(!getContext().isNummeric(value) && !getContext().isQuoted(value) && !getContext().isParameter(value)) {
+                getContext().syntaxError(ERR_VALUE_SHOULD_BE_QUOTED, value);
             }
         }
 
-        String filterClause;
+        Predicate filterClause;
 
         /* Expand the where clause
         */
         if (values.size() == 0) {
-            filterClause = String.format("%s %s NULL", column, inclusive ? "IS" : "IS NOT");
-        } else if (values.size() == 1) {
-            filterClause = String.format("%s %s %s",
-                    column,
-                    inclusive ? "=" : "!=",
-                    values.get(0));
+            filterClause = new IsNull(column, !inclusive);
+        } else if (values.size() == 1 && !getContext().isArrayBinding()) {
+            filterClause = new Comparison(column, inclusive ? "=" : "!=", getContext().toValue(values.get(0)));
         } else {
-            String argumentListINFunction = inclusive ? " IN (" : " NOT IN (";
+            List<Value> valueList = new ArrayList<>(values.size());
 
-            for (int idx = 0; idx < values.size(); idx++) {
-                argumentListINFunction += String.format(" %s", values.get(idx));
-
-                if (idx < values.size() - 1) {
-                    argumentListINFunction += ",";
-                }
+            for (String value : values) {
+                valueList.add(getContext().toValue(value));
             }
 
-            argumentListINFunction += " )";
+            filterClause = valueList(column, valueList, !inclusive);
+        }
+
+        getContext().getStatement().addFilterClause(filterClause);
+    }
+
+    /* Lists which are longer than the maximum list size are rendered according to the value list strategy. Lists which
+    are bound as an array are not limited.
+    */
+    private Predicate valueList(String column, List<Value> values, boolean negated) {
+        int maximum = getContext().getMaximumListSize();
 
-            filterClause = String.format("%s%s", column, argumentListINFunction);
+        if (values.size() <= maximum || getContext().isArrayBinding()) {
+            return new InList(column, values, negated);
         }
 
-        getCompiler().getStatement().addFilterClause(filterClause);
+        switch (getContext().getValueListStrategy()) {
+            case CHUNKED_IN:
+                List<Predicate> chunks = new ArrayList<>(values.size() / maximum + 1);
+
+                for (int idx = 0; idx < values.size(); idx += maximum) {
+                    chunks.add(new InList(column, values.subList(idx, Math.min(idx + maximum, values.size())), negated));
+                }
+
+                return new Junction(!negated, chunks);
+
+            case VALUES:
+                return new InValues(column, values, negated);
+
+            default:
+                return new InList(column, values, negated);
+        }
     }
 }
@@ -1,5 +1,7 @@
 package functionalsql.functions;
 
+import functionalsql.ast.Predicate;
+
 public interface FilterClauseCatcher {
-    public void catchFilterClause(String filterClause);
+    public void catchFilterClause(Predicate filterClause);
 }
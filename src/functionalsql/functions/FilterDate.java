@@ -1,6 +1,10 @@
 package functionalsql.functions;
 
 import functionalsql.Function;
+import functionalsql.ast.Comparison;
+import functionalsql.ast.Literal;
+import functionalsql.ast.Value;
+import functionalsql.consumer.ArgumentSchema;
 import functionalsql.consumer.TableOrColumnConsumer;
 import functionalsql.consumer.TokenConsumer;
 
@@ -18,10 +22,10 @@ import functionalsql.consumer.TokenConsumer;
 public class FilterDate extends Function {
     private String secondValueOrOperator = "=", column, value;
 
-    public FilterDate() {
-        build(new TableOrColumnConsumer(this, token -> column = token).singleValue().mandatory());
-        build(new TokenConsumer(this, token -> value = token).singleValue().mandatory());
-        build(new TokenConsumer(this, token -> secondValueOrOperator = token));
+    protected void buildArguments(ArgumentSchema.Builder arguments) {
+        arguments.build(new TableOrColumnConsumer<FilterDate>((filter, token) -> filter.column = token).singleValue().mandatory());
+        arguments.build(new TokenConsumer<FilterDate>((filter, token) -> filter.value = token).singleValue().mandatory());
+        arguments.build(new TokenConsumer<FilterDate>((filter, token) -> filter.secondValueOrOperator = token));
     }
 
     public void execute() throws Exception {
@@ -34,10 +38,16 @@ public class FilterDate extends Function {
                 ">=".equals(secondValueOrOperator) ||
                 "<".equals(secondValueOrOperator) ||
                 ">".equals(secondValueOrOperator)) {
-            getCompiler().getStatement().addFilterClause(String.format("%s %s '%s'", column, secondValueOrOperator, value));
+            getContext().getStatement().addFilterClause(new Comparison(column, secondValueOrOperator, toDate(value)));
         } else {
-            getCompiler().getStatement().addFilterClause(String.format("%s >= '%s'", column, value));
-            getCompiler().getStatement().addFilterClause(String.format("%s < '%s'", column, secondValueOrOperator));
+            getContext().getStatement().addFilterClause(new Comparison(column, ">=", toDate(value)));
+            getContext().getStatement().addFilterClause(new Comparison(column, "<", toDate(secondValueOrOperator)));
         }
     }
+
+    /* Dates are quoted, unless they are a placeholder.
+    */
+    private Value toDate(String date) {
+        return getContext().isParameter(date) ? getContext().toValue(date) : new Literal("'" + date + "'");
+    }
 }
@@ -1,6 +1,7 @@
 package functionalsql.functions;
 
 import functionalsql.Function;
+import functionalsql.consumer.ArgumentSchema;
 import functionalsql.consumer.TableOrColumnConsumer;
 
 import java.util.ArrayList;
@@ -15,31 +16,16 @@ import static functionalsql.FunctionalSQLCompiler.ERR_SELECT_ALREADY_DEFINED;
 public class Group extends Function {
     private List<String> columns = new ArrayList<>();
 
-    public Group() {
-        build(new TableOrColumnConsumer(this, token -> columns.add(token)).mandatory());
+    protected void buildArguments(ArgumentSchema.Builder arguments) {
+        arguments.build(new TableOrColumnConsumer<Group>((group, token) -> group.columns.add(token)).mandatory());
     }
 
     public void execute() throws Exception {
-        if (!getCompiler().getStatement().isVirginSelectClause()) {
-            getCompiler().syntaxError(ERR_SELECT_ALREADY_DEFINED, getCompiler().getStatement().getSelectClause());
+        if (!getContext().getStatement().isVirginSelectClause()) {
+            getContext().syntaxError(ERR_SELECT_ALREADY_DEFINED, getContext().getStatement().getSelectClause());
         }
 
-        String selectClause = "SELECT";
-        String groupByClause = "GROUP BY";
-
-        /* Expand the select and group clause.
-        */
-        for (int idx = 0; idx < columns.size(); idx++) {
-            selectClause += " " + columns.get(idx);
-            groupByClause += " " + columns.get(idx);
-
-            if (idx < columns.size() - 1) {
-                selectClause += ",";
-                groupByClause += ",";
-            }
-        }
-
-        getCompiler().getStatement().setSelectClause(selectClause);
-        getCompiler().getStatement().setGroupByClause(groupByClause);
+        getContext().getStatement().setSelectClause(columns, false);
+        getContext().getStatement().setGroupByClause(columns);
     }
 }
\ No newline at end of file
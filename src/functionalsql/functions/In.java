@@ -1,22 +1,25 @@
 package functionalsql.functions;
 
+import functionalsql.ast.InSubquery;
+import functionalsql.consumer.ArgumentSchema;
 import functionalsql.consumer.TableOrColumnConsumer;
 
 public class In extends Statement {
     private String column;
 
-    public In() {
-        buildAndReplace(0, new TableOrColumnConsumer(this, token -> column = token).singleValue().mandatory());
+    protected void buildArguments(ArgumentSchema.Builder arguments) {
+        super.buildArguments(arguments);
+        arguments.buildAndReplace(0, new TableOrColumnConsumer<In>((in, token) -> in.column = token).singleValue().mandatory());
     }
 
     protected void preParse() {
-        getCompiler().getStatements().add(this);
+        getContext().getStatements().add(this);
     }
 
     @Override
     public void execute() throws Exception {
-        getCompiler().getStatements().remove(this);
+        getContext().getStatements().remove(this);
         super.execute();
-        getCompiler().getStatement().addFilterClause(String.format("%s IN (%s)", column, getSql()));
+        getContext().getStatement().addFilterClause(new InSubquery(column, getQuery()));
     }
 }
@@ -2,6 +2,10 @@ package functionalsql.functions;
 
 import functionalsql.Function;
 import functionalsql.Relation;
+import functionalsql.ast.ColumnComparison;
+import functionalsql.ast.JoinClause;
+import functionalsql.ast.TableReference;
+import functionalsql.consumer.ArgumentSchema;
 import functionalsql.consumer.TokenConsumer;
 import functionalsql.consumer.Consumer;
 import functionalsql.consumer.FunctionConsumer;
@@ -29,6 +33,7 @@ public class Join extends Function {
 
     private String joinTable = null;
     private String aliasJoinTable = null;
+    private Statement joinStatement = null;
 
     private String joinFieldDriveTable = null;
     private String joinFieldJoinTable = null;
@@ -38,56 +43,60 @@ public class Join extends Function {
     private String table;
 
     public Join() {
+    }
+
+    public Join(JOIN_TYPE joinType) {
+        this.joinType = joinType;
+    }
+
+    protected void buildArguments(ArgumentSchema.Builder arguments) {
         /* Function consumers.
         */
-        build(0, new FunctionConsumer(this, function -> {
+        arguments.build(0, new FunctionConsumer<Join>((join, function) -> {
             if(NewTable.class == function.getClass()) {
-                joinTable = ((NewTable)function).getTable();
-                aliasJoinTable = ((NewTable)function).getTableAlias();
+                join.joinTable = ((NewTable)function).getTable();
+                join.aliasJoinTable = ((NewTable)function).getTableAlias();
             } else if(Statement.class == function.getClass()) {
-                joinTable = "(" + ((Statement)function).getSql() + ")";
+                join.joinStatement = (Statement)function;
+                join.aliasJoinTable = join.getContext().getStatement().getAlias(join.joinStatement);
+                join.joinTable = "(" + join.aliasJoinTable + ")";
             }
 
-            if (aliasJoinTable == null) {
-                aliasJoinTable = getCompiler().getStatement().getAlias(joinTable);
+            if (join.aliasJoinTable == null) {
+                join.aliasJoinTable = join.getContext().getStatement().getAlias(join.joinTable);
             }
         }).expect(NewTable.class).expect(Statement.class).singleValue().mandatory());
 
-        Consumer consumerStep2 = new FunctionConsumer(this).expect(Join.class).singleValue();
-        build(1, consumerStep2);
-        setNextStepForConsumer(consumerStep2, 3);
+        Consumer<Join, Function> consumerStep2 = new FunctionConsumer<Join>().expect(Join.class).singleValue();
+        arguments.build(1, consumerStep2);
+        arguments.setNextStepForConsumer(consumerStep2, 3);
 
-        build(2, new FunctionConsumer(this).expect(Join.class).singleValue());
-        build(3, new FunctionConsumer(this).expect(Join.class));
+        arguments.build(2, new FunctionConsumer<Join>().expect(Join.class).singleValue());
+        arguments.build(3, new FunctionConsumer<Join>().expect(Join.class));
 
         /* Token consumers.
         */
-        build(0, new TokenConsumer(this, token -> {
-            getCompiler().checkTableOrColumnFormat(token);
-            joinTable = token;
+        arguments.build(0, new TokenConsumer<Join>((join, token) -> {
+            join.getContext().checkTableOrColumnFormat(token);
+            join.joinTable = token;
 
             /* To make sure that the order of the aliases (e.g. t0, t1, t2) follows the order of the table in the statement
             (e.g. 'a join(b, join( c ) )' becomes 'SELECT * FROM a t0, b t1, c t2' as opposed to '... FROM a t0, c t1, b t2'
             the table is now registrated in the alias administration.
             */
-            if (aliasJoinTable == null) {
-                aliasJoinTable = getCompiler().getStatement().getAlias(joinTable);
+            if (join.aliasJoinTable == null) {
+                join.aliasJoinTable = join.getContext().getStatement().getAlias(join.joinTable);
             }
         }).singleValue().mandatory());
-        build(1, new TokenConsumer(this, token -> {
-            getCompiler().checkTableOrColumnFormat(token);
-            joinFieldDriveTable = token;
+        arguments.build(1, new TokenConsumer<Join>((join, token) -> {
+            join.getContext().checkTableOrColumnFormat(token);
+            join.joinFieldDriveTable = token;
         }).singleValue());
-        build(2, new TokenConsumer(this, token -> {
-            getCompiler().checkTableOrColumnFormat(token);
-            joinFieldJoinTable = token;
+        arguments.build(2, new TokenConsumer<Join>((join, token) -> {
+            join.getContext().checkTableOrColumnFormat(token);
+            join.joinFieldJoinTable = token;
         }).singleValue());
-        build(3, new TokenConsumer(this, token ->  getCompiler().syntaxError(ERR_JOIN_SHOULD_FOLLOW_JOIN, token)));
-    }
-
-    public Join(JOIN_TYPE joinType) {
-        this();
-        this.joinType = joinType;
+        arguments.build(3, new TokenConsumer<Join>((join, token) -> join.getContext().syntaxError(ERR_JOIN_SHOULD_FOLLOW_JOIN, token)));
     }
 
     public void setDriveTable(String driveTable, String aliasDriveTable) {
@@ -120,10 +129,18 @@ public class Join extends Function {
                         String joinColumnJoinTable,
                         JOIN_TYPE joinType) throws Exception {
 
-        String fromClause = String.format("%s %s", joinTable, aliasJoinTable);
+        TableReference fromClause = null;
 
         if(joinType == null) {
-            getCompiler().getStatement().addFromClause(fromClause);
+            if (joinStatement != null && joinTable.equals(this.joinTable)) {
+                getContext().getStatement().addFromClause(joinStatement, aliasJoinTable);
+            } else {
+                getContext().getStatement().addFromClause(joinTable, aliasJoinTable);
+            }
+        } else if (joinStatement != null && joinTable.equals(this.joinTable)) {
+            fromClause = new TableReference(joinStatement.getQuery(), aliasJoinTable);
+        } else {
+            fromClause = new TableReference(joinTable, aliasJoinTable);
         }
 
         /* Syntax:
@@ -134,12 +151,12 @@ public class Join extends Function {
         RULE: If joinTableColumn is present, then also driveTableColumn is present.
         */
         if (joinColumnJoinTable == null) {
-            Relation relation = getCompiler().getRelation(driveTable, joinColumnDriveTable, joinTable);
+            Relation relation = getContext().getRelation(driveTable, joinColumnDriveTable, joinTable);
 
             /* If join fields are not programmed and there are also no cumstom mappings, then we cannot define the join.
             */
             if (relation == null) {
-                getCompiler().syntaxError(ERR_NO_JOIN_COLUMNS_DEFINED_AND_NO_RELATION_FOUND);
+                getContext().syntaxError(ERR_NO_JOIN_COLUMNS_DEFINED_AND_NO_RELATION_FOUND);
             }
 
             joinColumnJoinTable = relation.getColumn(joinTable);
@@ -159,49 +176,20 @@ public class Join extends Function {
 
         /* Expand the where clause if necessary.
         */
-        String clause;
-
-        if (getCompiler().aliasToNumber(aliasDriveTable) < getCompiler().aliasToNumber(aliasJoinTable)) {
-            clause = String.format("%s.%s = %s.%s",
-                    aliasDriveTable,
-                    joinColumnDriveTable,
-                    aliasJoinTable,
-                    joinColumnJoinTable);
+        ColumnComparison clause;
+
+        if (getContext().aliasToNumber(aliasDriveTable) < getContext().aliasToNumber(aliasJoinTable)) {
+            clause = new ColumnComparison(aliasDriveTable + "." + joinColumnDriveTable, "=", aliasJoinTable + "." + joinColumnJoinTable);
         } else {
-            clause = String.format("%s.%s = %s.%s",
-                    aliasJoinTable,
-                    joinColumnJoinTable,
-                    aliasDriveTable,
-                    joinColumnDriveTable);
+            clause = new ColumnComparison(aliasJoinTable + "." + joinColumnJoinTable, "=", aliasDriveTable + "." + joinColumnDriveTable);
         }
 
         /* The inner join is depicted as SELECT ... FROM a, b WHERE ... (instead of using the JOIN keyword).
         */
         if(joinType == null) {
-            getCompiler().getStatement().addFilterClause(clause);
+            getContext().getStatement().addFilterClause(clause);
         } else {
-            String joinClause=null;
-
-            switch (joinType) {
-                case INNER:
-                    joinClause = String.format("INNER JOIN %s ON %s", fromClause, clause);
-                    break;
-
-                case LEFT:
-                    joinClause = String.format("LEFT JOIN %s ON %s", fromClause, clause);
-                    break;
-
-                case RIGHT:
-                    joinClause = String.format("RIGHT JOIN %s ON %s", fromClause, clause);
-                    break;
-
-                case FULL:
-                    joinClause = String.format("FULL JOIN %s ON %s", fromClause, clause);
-                    break;
-            }
-
-            getCompiler().getStatement().addJoinClause(joinClause);
+            getContext().getStatement().addJoinClause(new JoinClause(JoinClause.Type.valueOf(joinType.name()), fromClause, clause));
         }
     }
 }
-
@@ -1,28 +1,123 @@
 package functionalsql.functions;
 
+import functionalsql.Collation;
 import functionalsql.Function;
+import functionalsql.ast.Comparison;
+import functionalsql.ast.Literal;
+import functionalsql.ast.PatternMatch;
+import functionalsql.ast.Predicate;
+import functionalsql.ast.Value;
+import functionalsql.consumer.ArgumentSchema;
 import functionalsql.consumer.TableOrColumnConsumer;
 import functionalsql.consumer.TokenConsumer;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static functionalsql.FunctionalSQLCompiler.ERR_VALUE_SHOULD_BE_QUOTED;
 
 /**
  * Syntax: like( column , 'aa%bb' )
+ *
+ * With a like collation (FunctionalSQLCompiler.setSargableLike) a pattern without wildcards becomes an equality and a
+ * pattern with a prefix becomes a range on the prefix, e.g. like(v, 'abc%') -> v >= 'abc' AND v < 'abd'.
  */
 public class Like extends Function {
 
     private String column, value;
 
-    public Like() {
-        build(new TableOrColumnConsumer(this, token -> column = token).singleValue().mandatory());
-        build(new TokenConsumer(this, token -> value = token).singleValue().mandatory());
+    protected void buildArguments(ArgumentSchema.Builder arguments) {
+        arguments.build(new TableOrColumnConsumer<Like>((like, token) -> like.column = token).singleValue().mandatory());
+        arguments.build(new TokenConsumer<Like>((like, token) -> like.value = token).singleValue().mandatory());
     }
 
     public void execute() throws Exception {
-        if(!getCompiler().isNummeric(value) && !getCompiler().isQuoted(value)) {
-            getCompiler().syntaxError(ERR_VALUE_SHOULD_BE_QUOTED, value);
+        if(!getContext().isNummeric(value) && !getContext().isQuoted(value) && !getContext().isParameter(value)) {
+            getContext().syntaxError(ERR_VALUE_SHOULD_BE_QUOTED, value);
+        }
+
+        Value pattern = getContext().toValue(value);
+        List<Predicate> predicates = null;
+
+        if (getContext().getLikeCollation() != null && pattern instanceof Literal && ((Literal)pattern).isQuoted()) {
+            predicates = sargable(column, (Literal)pattern, getContext().getLikeCollation(), getContext().getLikeEscape());
+        }
+
+        if (predicates == null) {
+            getContext().getStatement().addFilterClause(new PatternMatch(column, pattern));
+            return;
+        }
+
+        for (Predicate predicate : predicates) {
+            getContext().getStatement().addFilterClause(predicate);
+        }
+    }
+
+    /* Returns the equality or range for the pattern, together with the pattern match if the range does not match the
+    same strings, or null if the pattern can not be rewritten (it starts with a wildcard, ends with an escape or its
+    prefix contains a quote or a backslash, which would need escaping in the literal).
+    */
+    private static List<Predicate> sargable(String column, Literal pattern, Collation collation, Character escape) {
+        String text = (String)pattern.getValue();
+        StringBuilder prefix = new StringBuilder(text.length());
+        int idx = 0;
+
+        for (; idx < text.length(); idx++) {
+            char c = text.charAt(idx);
+
+            if (escape != null && c == escape) {
+                if (++idx == text.length()) {
+                    return null;
+                }
+
+                prefix.append(text.charAt(idx));
+            } else if (c == '%' || c == '_') {
+                break;
+            } else {
+                prefix.append(c);
+            }
+        }
+
+        if (prefix.length() == 0 || prefix.indexOf("'") >= 0 || prefix.indexOf("\\") >= 0) {
+            return null;
+        }
+
+        List<Predicate> predicates = new ArrayList<>(3);
+        boolean exact = collation == Collation.BINARY;
+
+        if (idx == text.length()) {
+            predicates.add(new Comparison(column, "=", new Literal("'" + prefix + "'")));
+        } else {
+            predicates.add(new Comparison(column, ">=", new Literal("'" + prefix + "'")));
+
+            String upper = collation == Collation.BINARY ? upperBound(prefix) : null;
+
+            if (upper != null) {
+                predicates.add(new Comparison(column, "<", new Literal("'" + upper + "'")));
+            }
+
+            /* Only a single trailing % matches every string of the range.
+            */
+            exact &= upper != null && idx == text.length() - 1 && text.charAt(idx) == '%';
+        }
+
+        if (!exact) {
+            predicates.add(new PatternMatch(column, pattern));
+        }
+
+        return predicates;
+    }
+
+    /* The prefix with its last character incremented, which is the smallest string after all strings starting with the
+    prefix, or null if the incremented character is a surrogate, a quote or a backslash.
+    */
+    private static String upperBound(StringBuilder prefix) {
+        char last = (char)(prefix.charAt(prefix.length() - 1) + 1);
+
+        if (last == 0 || Character.isSurrogate(last) || Character.isSurrogate(prefix.charAt(prefix.length() - 1)) || last == '\'' || last == '\\') {
+            return null;
         }
 
-        getCompiler().getStatement().addFilterClause(String.format("%s LIKE %s", column, value));
+        return prefix.substring(0, prefix.length() - 1) + last;
     }
 }
@@ -0,0 +1,40 @@
+package functionalsql.functions;
+
+import functionalsql.Function;
+import functionalsql.consumer.ArgumentSchema;
+import functionalsql.consumer.TokenConsumer;
+
+import java.util.regex.Pattern;
+
+import static functionalsql.FunctionalSQLCompiler.ERR_LIMIT_ALREADY_DEFINED;
+import static functionalsql.FunctionalSQLCompiler.ERR_LIMIT_SHOULD_BE_A_NUMBER;
+
+/**
+ * Syntax: limit( rows ) or limit( rows, offset )
+ *
+ * Rows and offset are numbers or placeholders. The SQL depends on the dialect (LIMIT/OFFSET, OFFSET/FETCH FIRST or TOP).
+ */
+public class Limit extends Function {
+    private final static Pattern NUMBER = Pattern.compile("[0-9]+");
+
+    private String rows, offset;
+
+    protected void buildArguments(ArgumentSchema.Builder arguments) {
+        arguments.build(new TokenConsumer<Limit>((limit, token) -> limit.rows = token).singleValue().mandatory());
+        arguments.build(new TokenConsumer<Limit>((limit, token) -> limit.offset = token).singleValue());
+    }
+
+    public void execute() throws Exception {
+        for (String value : new String[] { rows, offset }) {
+            if (value != null && !NUMBER.matcher(value).matches() && !getContext().isParameter(value)) {
+                getContext().syntaxError(ERR_LIMIT_SHOULD_BE_A_NUMBER, value);
+            }
+        }
+
+        if (getContext().getStatement().getLimit() != null) {
+            getContext().syntaxError(ERR_LIMIT_ALREADY_DEFINED);
+        }
+
+        getContext().getStatement().setLimit(getContext().toValue(rows), offset != null ? getContext().toValue(offset) : null);
+    }
+}
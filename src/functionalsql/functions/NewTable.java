@@ -1,6 +1,7 @@
 package functionalsql.functions;
 
 import functionalsql.Function;
+import functionalsql.consumer.ArgumentSchema;
 import functionalsql.consumer.TableOrColumnConsumer;
 
 /**
@@ -11,12 +12,12 @@ import functionalsql.consumer.TableOrColumnConsumer;
 public class NewTable extends Function {
     private String table, alias;
 
-    public NewTable() {
-        build(new TableOrColumnConsumer(this, token -> table = token).singleValue().mandatory());
+    protected void buildArguments(ArgumentSchema.Builder arguments) {
+        arguments.build(new TableOrColumnConsumer<NewTable>((newTable, token) -> newTable.table = token).singleValue().mandatory());
     }
 
     public void execute() throws Exception {
-        alias = getCompiler().getStatement().getAlias(table, true);
+        alias = getContext().getStatement().getAlias(table, true);
     }
 
     public String getTable() {
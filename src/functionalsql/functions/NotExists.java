@@ -0,0 +1,10 @@
+package functionalsql.functions;
+
+/**
+ * Syntax: notexists( table , ... ) or notexists( (statement) , ... )
+ *
+ * Rows of the drive table without a matching row (an anti join), see exists.
+ */
+public class NotExists extends Exists {
+    public NotExists() { super(true); }
+}
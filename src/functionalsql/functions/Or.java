@@ -1,29 +1,34 @@
 package functionalsql.functions;
 
 import functionalsql.Function;
+import functionalsql.ast.Junction;
+import functionalsql.ast.Predicate;
+import functionalsql.consumer.ArgumentSchema;
 import functionalsql.consumer.FunctionConsumer;
 
 import java.util.ArrayList;
 import java.util.List;
 
 public class Or extends Function {
-    private List<String> filterClauses = new ArrayList<>();
+    private List<Predicate> filterClauses = new ArrayList<>();
     private boolean orMode=true;
 
     private FilterClauseCatcher filterClauseCatcher;
 
     public Or() {
-        build(new FunctionConsumer(this).expect(Filter.class).expect(FilterDate.class).expect(Or.class).mandatory());
     }
 
     public Or(boolean orMode) {
-        this();
         this.orMode = orMode;
     }
 
+    protected void buildArguments(ArgumentSchema.Builder arguments) {
+        arguments.build(new FunctionConsumer<Or>().expect(Filter.class).expect(FilterDate.class).expect(Or.class).mandatory());
+    }
+
     protected void preParse() {
-        filterClauseCatcher = getCompiler().getStatement().getFilterClauseCatcher();
-        getCompiler().getStatement().setFilterClauseCatcher(filterClause -> {
+        filterClauseCatcher = getContext().getStatement().getFilterClauseCatcher();
+        getContext().getStatement().setFilterClauseCatcher(filterClause -> {
             if(!filterClauses.contains(filterClause)) {
                 filterClauses.add(filterClause);
              }
@@ -32,16 +37,7 @@ public class Or extends Function {
 
     @Override
     public void execute() throws Exception {
-        getCompiler().getStatement().setFilterClauseCatcher(filterClauseCatcher);
-
-        String sql = "( ";
-        for(int idx=0; idx < filterClauses.size(); idx++) {
-            sql += ( filterClauses.get(idx) + " " );
-            if(idx < filterClauses.size() - 1) {
-                sql += (orMode ? "OR " : "AND ");
-            }
-        }
-
-        getCompiler().getStatement().addFilterClause(sql + ")");
+        getContext().getStatement().setFilterClauseCatcher(filterClauseCatcher);
+        getContext().getStatement().addFilterClause(new Junction(orMode, filterClauses));
     }
 }
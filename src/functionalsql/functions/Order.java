@@ -1,6 +1,8 @@
 package functionalsql.functions;
 
 import functionalsql.Function;
+import functionalsql.ast.OrderBy;
+import functionalsql.consumer.ArgumentSchema;
 import functionalsql.consumer.TableOrColumnConsumer;
 
 import java.util.ArrayList;
@@ -17,8 +19,8 @@ public class Order extends Function {
     private List<String> columns = new ArrayList<>();
 
 
-    public Order() {
-        build(new TableOrColumnConsumer(this, token -> columns.add(token)).mandatory());
+    protected void buildArguments(ArgumentSchema.Builder arguments) {
+        arguments.build(new TableOrColumnConsumer<Order>((order, token) -> order.columns.add(token)).mandatory());
     }
 
     protected void setDesc() {
@@ -27,20 +29,10 @@ public class Order extends Function {
 
     public void execute() throws Exception {
 
-        if (getCompiler().getStatement().getOrderByClause() != null) {
-            getCompiler().syntaxError(ERR_ORDER_BY_CLAUSE_ALREADY_DEFINED);
+        if (getContext().getStatement().getOrderBy() != null) {
+            getContext().syntaxError(ERR_ORDER_BY_CLAUSE_ALREADY_DEFINED);
         }
 
-        String orderByClause = "ORDER BY";
-
-        for (int idx = 0; idx < columns.size(); idx++) {
-            orderByClause += " " + columns.get(idx);
-
-            if (idx < columns.size() - 1) {
-                orderByClause += ",";
-            }
-        }
-
-        getCompiler().getStatement().setOrderByClause( orderByClause + (asc ? " ASC" : " DESC"));
+        getContext().getStatement().setOrderBy(new OrderBy(columns, asc));
     }
 }
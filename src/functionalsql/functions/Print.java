@@ -1,6 +1,7 @@
 package functionalsql.functions;
 
 import functionalsql.Function;
+import functionalsql.consumer.ArgumentSchema;
 import functionalsql.consumer.TableOrColumnConsumer;
 
 import java.util.ArrayList;
@@ -14,38 +15,33 @@ import static functionalsql.FunctionalSQLCompiler.ERR_SELECT_ALREADY_DEFINED;
 public class Print extends Function {
     private List<String> columns = new ArrayList<>();
 
-    public Print() {
-        build(new TableOrColumnConsumer(this, token -> columns.add(token)).mandatory());
+    protected void buildArguments(ArgumentSchema.Builder arguments) {
+        arguments.build(new TableOrColumnConsumer<Print>((print, token) -> print.columns.add(token)).mandatory());
     }
 
     public void execute() throws Exception {
-        if (!getCompiler().getStatement().isVirginSelectClause()) {
-            getCompiler().syntaxError(ERR_SELECT_ALREADY_DEFINED, getCompiler().getStatement().getSelectClause());
+        if (!getContext().getStatement().isVirginSelectClause()) {
+            getContext().syntaxError(ERR_SELECT_ALREADY_DEFINED, getContext().getStatement().getSelectClause());
         }
 
-        String selectClause = "SELECT";
+        List<String> selectClause = new ArrayList<>(columns.size());
 
         /* Expand the select clause.
         */
-        for (int idx = 0; idx < columns.size(); idx++) {
-            String column = columns.get(idx);
+        for (String column : columns) {
 
             /* Check if argument is a table. If so, all fields of table are selected.
             Argument can also be a reference when the table was referred with the ref( table, occ ) function.
             */
-            if (getCompiler().getStatement().isTable(column)) {
-                column = getCompiler().getStatement().getAlias(column) + ".*";
-            } else if (getCompiler().getStatement().isAlias(column)) {
+            if (getContext().getStatement().isTable(column)) {
+                column = getContext().getStatement().getAlias(column) + ".*";
+            } else if (getContext().getStatement().isAlias(column)) {
                 column = column + ".*";
             }
 
-            selectClause += " " + column;
-
-            if (idx < columns.size() - 1) {
-                selectClause += ",";
-            }
+            selectClause.add(column);
         }
 
-        getCompiler().getStatement().setSelectClause(selectClause);
+        getContext().getStatement().setSelectClause(selectClause, false);
     }
 }
@@ -1,6 +1,7 @@
 package functionalsql.functions;
 
 import functionalsql.Function;
+import functionalsql.consumer.ArgumentSchema;
 import functionalsql.consumer.TokenConsumer;
 
 import java.util.Map;
@@ -23,9 +24,9 @@ import static functionalsql.FunctionalSQLCompiler.*;
 public class Ref extends Function {
     private String reference = null, column, value;
 
-    public Ref() {
-        build(new TokenConsumer(this, token -> column = token).singleValue().mandatory());
-        build(new TokenConsumer(this, token -> value = token).singleValue().mandatory());
+    protected void buildArguments(ArgumentSchema.Builder arguments) {
+        arguments.build(new TokenConsumer<Ref>((ref, token) -> ref.column = token).singleValue().mandatory());
+        arguments.build(new TokenConsumer<Ref>((ref, token) -> ref.value = token).singleValue().mandatory());
     }
 
     public void execute() throws Exception {
@@ -37,26 +38,26 @@ public class Ref extends Function {
     }
 
     private String ref(String tableColumn, String reference) throws Exception {
-        String[] tableAndColumn = getCompiler().splitTableColumn(tableColumn);
+        String[] tableAndColumn = getContext().splitTableColumn(tableColumn);
 
         /* If ref is programmed, the referenced table should already be processed.
         */
-        if (!getCompiler().getStatement().isTable(tableAndColumn[0])) {
-            getCompiler().syntaxError(ERR_REFERING_TO_A_NON_EXISTING_TABLE, tableAndColumn[0]);
+        if (!getContext().getStatement().isTable(tableAndColumn[0])) {
+            getContext().syntaxError(ERR_REFERING_TO_A_NON_EXISTING_TABLE, tableAndColumn[0]);
         }
 
-        if (!getCompiler().isNummeric(reference)) {
-            getCompiler().syntaxError(ERR_TABLE_REFERENCE_SHOULD_BE_NUMMERICAL, reference);
+        if (!getContext().isNummeric(reference)) {
+            getContext().syntaxError(ERR_TABLE_REFERENCE_SHOULD_BE_NUMMERICAL, reference);
         }
 
         if (Integer.parseInt(reference) < 1) {
-            getCompiler().syntaxError(ERR_TABLE_REFERENCE_SHOULD_BE_EQUAL_OR_GREATER_THEN_ONE, reference);
+            getContext().syntaxError(ERR_TABLE_REFERENCE_SHOULD_BE_EQUAL_OR_GREATER_THEN_ONE, reference);
         }
 
         int idx = 0;
         String alias = null;
 
-        for (Map.Entry<String, String> entry : getCompiler().getStatement().getAliases().entrySet()) {
+        for (Map.Entry<String, String> entry : getContext().getStatement().getAliases().entrySet()) {
 
             if (!tableAndColumn[0].equals(entry.getValue())) {
                 continue;
@@ -70,7 +71,7 @@ public class Ref extends Function {
         }
 
         if (alias == null) {
-            getCompiler().syntaxError(ERR_TABLE_REFERENCE_IS_NOT_CORRECT, reference);
+            getContext().syntaxError(ERR_TABLE_REFERENCE_IS_NOT_CORRECT, reference);
         }
 
         return alias + (tableAndColumn.length > 1 ? ("." + tableAndColumn[1]) : ""); // E.g. t0 or t0.column
@@ -1,6 +1,7 @@
 package functionalsql.functions;
 
 import functionalsql.Function;
+import functionalsql.consumer.ArgumentSchema;
 import functionalsql.consumer.TableOrColumnConsumer;
 
 import java.util.ArrayList;
@@ -20,39 +21,26 @@ public class Report extends Function {
 
     public Report(String function) {
         this.function = function;
+    }
 
-        build(new TableOrColumnConsumer(this, token -> reportFunction = token).singleValue().mandatory());
-        build(new TableOrColumnConsumer(this, token -> columns.add(token)));
+    protected void buildArguments(ArgumentSchema.Builder arguments) {
+        arguments.build(new TableOrColumnConsumer<Report>((report, token) -> report.reportFunction = token).singleValue().mandatory());
+        arguments.build(new TableOrColumnConsumer<Report>((report, token) -> report.columns.add(token)));
     }
 
     public void execute() throws Exception {
-        if (!getCompiler().getStatement().isVirginSelectClause()) {
-            getCompiler().syntaxError(ERR_SELECT_ALREADY_DEFINED, getCompiler().getStatement().getSelectClause());
+        if (!getContext().getStatement().isVirginSelectClause()) {
+            getContext().syntaxError(ERR_SELECT_ALREADY_DEFINED, getContext().getStatement().getSelectClause());
         }
 
         /* If anything else, then it is a program error.
         */
         assert ("SUM".equals(function) || "MAX".equals(function) || "MIN".equals(function));
 
-        String selectClause = "SELECT";
-        String groupByClause=null;
-
-        if (columns.size() > 0) {
-             groupByClause = "GROUP BY";
-        }
-
-        for (int idx = 0; idx < columns.size(); idx++) {
-            selectClause += " " + columns.get(idx);
-            groupByClause += " " + columns.get(idx);
-
-            if (idx < columns.size() - 1) {
-                selectClause += ",";
-                groupByClause += ",";
-            }
-        }
+        List<String> selectClause = new ArrayList<>(columns);
+        selectClause.add(function + "( " + reportFunction + " )");
 
-        getCompiler().getStatement().setGroupByClause(groupByClause);
-        getCompiler().getStatement().setSelectClause(
-                selectClause + String.format("%s %s( %s )", columns.size() > 0 ? "," : "", function, reportFunction));
+        getContext().getStatement().setGroupByClause(columns);
+        getContext().getStatement().setSelectClause(selectClause, false);
     }
 }
@@ -1,51 +1,90 @@
 package functionalsql.functions;
 
 import functionalsql.Function;
+import functionalsql.ast.ColumnComparison;
+import functionalsql.ast.Comparison;
+import functionalsql.ast.Exists;
+import functionalsql.ast.InList;
+import functionalsql.ast.InSubquery;
+import functionalsql.ast.InValues;
+import functionalsql.ast.IsNull;
+import functionalsql.ast.JoinClause;
+import functionalsql.ast.OrderBy;
+import functionalsql.ast.PatternMatch;
+import functionalsql.ast.Predicate;
+import functionalsql.ast.Query;
+import functionalsql.ast.RawPredicate;
+import functionalsql.ast.SqlRenderer;
+import functionalsql.ast.RowComparison;
+import functionalsql.ast.TableReference;
+import functionalsql.ast.Value;
+import functionalsql.consumer.ArgumentSchema;
 import functionalsql.consumer.TableOrColumnConsumer;
 import functionalsql.consumer.FunctionConsumer;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Collections;
+import java.util.Set;
+import java.util.function.UnaryOperator;
 
+import static functionalsql.FunctionalSQLCompiler.ERR_AFTER_DOES_NOT_MATCH_ORDER_BY;
 import static functionalsql.FunctionalSQLCompiler.ERR_IF_TABLE_HAS_MULTIPLE_INSTANCES_USE_REF_FUNCTION;
 import static functionalsql.FunctionalSQLCompiler.ERR_NULL_TABLE;
 import static functionalsql.FunctionalSQLCompiler.ERR_UNKNOWN_FUNCTION;
 
 public class Statement extends Function {
-    private String selectClause=VIRGIN_SELECT_CLAUSE;
-    private String groupByClause;
-    private String orderByClause;
-    private List<String> fromClauses = new ArrayList<>();
-    private List<String> joinClauses = new ArrayList<>();
-    private List<String> filterClauses = new ArrayList<>();
+    private List<String> selectColumns = Collections.emptyList();
+    private boolean distinct;
+    private List<String> groupByColumns = Collections.emptyList();
+    private OrderBy orderBy;
+    private Value limit, offset;
+    private List<String> seekColumns;
+    private List<Value> seekValues;
+    private List<FromClause> fromClauses = new ArrayList<>();
+    private Set<JoinClause> joinClauses = new LinkedHashSet<>();
+    private Set<Predicate> filterClauses = new LinkedHashSet<>();
     private Map<String, String> aliases = new HashMap<>();
-    private final static String VIRGIN_SELECT_CLAUSE="SELECT *";
 
+    /* Reverse index of the aliases: table -> first alias of the table, and the tables with more than one alias.
+    */
+    private Map<String, String> aliasOfTable = new HashMap<>();
+    private Set<String> tablesWithMultipleAliases = new HashSet<>();
+
+    private Set<TableReference> fromTables = new HashSet<>();
+
+    private Query query;
     private String sql, table;
 
     private FilterClauseCatcher filterClauseCatcher;
 
-    public Statement() {
-        build(0, new TableOrColumnConsumer(this, token -> {
-            if(table != null) {
-                getCompiler().syntaxError(ERR_UNKNOWN_FUNCTION, token);
+    protected void buildArguments(ArgumentSchema.Builder arguments) {
+        arguments.build(0, new TableOrColumnConsumer<Statement>((statement, token) -> {
+            if(statement.table != null) {
+                statement.getContext().syntaxError(ERR_UNKNOWN_FUNCTION, token);
             }
 
-            table = token;
-            fromClauses.add(String.format("%s %s", table, getAlias(table)));
+            statement.table = token;
+            statement.addFromClause(token, statement.getAlias(token));
         }).consumesStatement());
 
-        build(0, new FunctionConsumer(this,function -> {
+        arguments.build(0, new FunctionConsumer<Statement>((statement, function) -> {
             if (function.getClass() == Statement.class) {
-                String nestedQuery = ((Statement) function).getSql();
-
-                if(isFullSelect()) {
-                    copyStatement(((Statement)function));
+                /* A nested statement with a limit is not merged, because the clauses of this statement apply to the
+                limited rows.
+                */
+                if(statement.isFullSelect() && ((Statement)function).limit == null && ((Statement)function).offset == null) {
+                    statement.copyStatement(((Statement)function));
                 } else {
-                    fromClauses.add(String.format("(%s) %s", nestedQuery, getAlias(nestedQuery)));
+                    statement.addFromClause((Statement)function, statement.getAlias((Statement)function));
                 }
             }
         }).consumesStatement());
@@ -59,66 +98,163 @@ public class Statement extends Function {
         this.filterClauseCatcher = filterClauseCatcher;
     }
 
+    /**
+     * Creates the query of the statement. Tables are ordered on their alias, join clauses on their type and table and
+     * filter clauses on the start of their SQL (see sortKey). Clauses with the same key keep the order in which they were added.
+     */
     public void execute() throws Exception {
+        if (seekColumns != null) {
+            seek();
+        }
 
-        sql = String.format("%s ", selectClause); // SELECT ...
-
-        Collections.sort(fromClauses, (s1, s2) -> s1.toCharArray()[s1.toCharArray().length - 1] - s2.toCharArray()[s2.toCharArray().length - 1]);
+        Collections.sort(fromClauses, (c1, c2) -> c1.getSortKey() - c2.getSortKey());
 
-        for (int idx = 0; idx < fromClauses.size(); idx++) {
-            if (idx == 0) {
-                sql += ("FROM " + fromClauses.get(idx));
-            } else {
-                sql += (" " + fromClauses.get(idx));
-            }
+        List<TableReference> from = new ArrayList<>(fromClauses.size());
 
-            if (idx < fromClauses.size() - 1) {
-                sql += ",";
-            }
+        for (FromClause fromClause : fromClauses) {
+            from.add(fromClause.getTable());
         }
 
-        Collections.sort(joinClauses);
+        List<JoinClause> joins = sort(joinClauses, Statement::sortKey);
+        List<Predicate> where = sort(filterClauses, Statement::sortKey);
+
+        query = Query.builder()
+                .distinct(distinct)
+                .select(selectColumns)
+                .from(from)
+                .joins(joins)
+                .where(where)
+                .groupBy(groupByColumns)
+                .orderBy(orderBy)
+                .limit(limit)
+                .offset(offset)
+                .build();
+    }
 
-        for(String clause : joinClauses) {
-            sql += ( " " + clause);
+    /* Sort key of a join clause: its type and table, without rendering its condition.
+    */
+    private static String sortKey(JoinClause join) {
+        TableReference table = join.getTable();
+        return join.getType().name() + ' ' + (table.isSubquery() ? "(" : table.getTable()) + ' ' + table.getAlias();
+    }
+
+    /* Sort key of a filter clause: the start of its SQL up to its first value, e.g. 'v >=' or 'v IN', without rendering
+    its values.
+    */
+    private static String sortKey(Predicate predicate) {
+        if (predicate instanceof Comparison) {
+            return ((Comparison)predicate).getColumn() + ' ' + ((Comparison)predicate).getOperator();
+        } else if (predicate instanceof ColumnComparison) {
+            ColumnComparison comparison = (ColumnComparison)predicate;
+            return comparison.getLeft() + ' ' + comparison.getOperator() + ' ' + comparison.getRight();
+        } else if (predicate instanceof InList) {
+            return ((InList)predicate).getColumn() + (((InList)predicate).isNegated() ? " NOT IN" : " IN");
+        } else if (predicate instanceof InValues) {
+            return ((InValues)predicate).getColumn() + (((InValues)predicate).isNegated() ? " NOT IN" : " IN");
+        } else if (predicate instanceof IsNull) {
+            return ((IsNull)predicate).getColumn() + (((IsNull)predicate).isNegated() ? " IS NOT NULL" : " IS NULL");
+        } else if (predicate instanceof PatternMatch) {
+            return ((PatternMatch)predicate).getColumn() + " LIKE";
+        } else if (predicate instanceof InSubquery) {
+            return ((InSubquery)predicate).getColumn() + " IN";
+        } else if (predicate instanceof Exists) {
+            return ((Exists)predicate).isNegated() ? "NOT EXISTS" : "EXISTS";
+        } else if (predicate instanceof RawPredicate) {
+            return ((RawPredicate)predicate).getSql();
         }
 
-        Collections.sort(filterClauses);
+        /* Junctions and row comparisons start with a bracket.
+        */
+        return "(";
+    }
 
-        boolean where=true;
+    /* Stable sort of the clauses on their key, which is computed once per clause.
+    */
+    private static <T> List<T> sort(Collection<T> collection, java.util.function.Function<T, String> key) {
+        List<T> clauses = new ArrayList<>(collection);
+        String[] keys = new String[clauses.size()];
+        Integer[] order = new Integer[clauses.size()];
 
-        for (String clause : filterClauses) {
-            if (where) {
-                sql += String.format(" WHERE %s", clause);
-                where = false;
-            } else {
-                sql += String.format(" AND %s", clause);
-            }
+        for (int idx = 0; idx < keys.length; idx++) {
+            keys[idx] = key.apply(clauses.get(idx));
+            order[idx] = idx;
         }
 
-        /* GROUP BY clause.
-        */
-        if (groupByClause != null) {
-            sql += (" " + groupByClause);
+        Arrays.sort(order, (i1, i2) -> keys[i1].compareTo(keys[i2]));
+
+        List<T> sorted = new ArrayList<>(clauses.size());
+
+        for (int idx : order) {
+            sorted.add(clauses.get(idx));
         }
 
-        /* ORDER clause.
-        */
-        if (orderByClause != null) {
-            sql += (" " + orderByClause);
+        return sorted;
+    }
+
+    /* The seek predicate of after follows the direction of the order by clause, which can be defined before or after
+    the after function. Without an order by clause, the rows are ordered ascending on the columns of after. The
+    direction is rendered after every column, because the row comparison assumes all columns are sorted in it.
+    */
+    private void seek() throws Exception {
+        if (orderBy == null) {
+            orderBy = new OrderBy(seekColumns, true, true);
+        } else if (!orderBy.getColumns().equals(seekColumns)) {
+            getContext().syntaxError(ERR_AFTER_DOES_NOT_MATCH_ORDER_BY, String.join(", ", seekColumns), String.join(", ", orderBy.getColumns()));
+        } else {
+            orderBy = new OrderBy(orderBy.getColumns(), orderBy.isAscending(), true);
         }
+
+        filterClauses.add(new RowComparison(seekColumns, orderBy.isAscending() ? ">" : "<", seekValues));
+        seekColumns = null;
+    }
+
+    /**
+     * Returns the query of the statement, which is available after the statement is executed.
+     */
+    public Query getQuery() {
+        return query;
+    }
+
+    /**
+     * Replaces the query of the executed statement by the result of a rewrite, e.g. SubqueryFlattener.flatten.
+     */
+    public void rewrite(UnaryOperator<Query> rewrite) {
+        query = rewrite.apply(query);
+        sql = null;
+    }
+
+    /**
+     * Writes the SQL of the statement in the dialect of the compiler to the output.
+     */
+    public void render(Appendable out) throws IOException {
+        new SqlRenderer(getContext().getDialect()).render(query, out);
     }
 
     public boolean isVirginSelectClause() {
-        return VIRGIN_SELECT_CLAUSE == selectClause;
+        return selectColumns.isEmpty();
     }
 
+    /**
+     * Returns the SQL of the statement. The SQL is rendered on the first call.
+     */
     public String getSql() {
+        if (sql == null) {
+            StringBuilder out = new StringBuilder(64);
+
+            try {
+                render(out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e); // A StringBuilder does not throw.
+            }
+
+            sql = out.toString();
+        }
+
         return sql;
     }
 
     public String toString() {
-        return sql;
+        return getSql();
     }
 
     public boolean isFullSelect() {
@@ -126,11 +262,13 @@ public class Statement extends Function {
     }
 
     private void copyStatement(Statement statement) {
-        this.selectClause = statement.selectClause;
-        this.groupByClause = statement.groupByClause;
-        this.orderByClause = statement.orderByClause;
+        this.selectColumns = statement.selectColumns;
+        this.distinct = statement.distinct;
+        this.groupByColumns = statement.groupByColumns;
+        this.orderBy = statement.orderBy;
 
-        this.aliases.putAll(statement.aliases);
+        statement.aliases.forEach(this::registerAlias);
+        this.fromTables.addAll(statement.fromTables);
         this.fromClauses.addAll(statement.fromClauses);
         this.joinClauses.addAll(statement.joinClauses);
         this.filterClauses.addAll(statement.filterClauses);
@@ -140,88 +278,194 @@ public class Statement extends Function {
         return getAlias(table, false);
     }
 
+    /**
+     * Creates an alias for a nested statement. The nested statement is registered under the name '(alias)' so it
+     * can be refered to (e.g. as drive table of a join) without rendering its SQL.
+     */
+    public String getAlias(Statement nested) {
+        return reserveAlias();
+    }
+
+    /**
+     * Creates an alias which is not used by a table of the statement, e.g. for the table of a correlated subquery.
+     */
+    public String reserveAlias() {
+        String alias = "t" + aliases.size();
+
+        registerAlias(alias, "(" + alias + ")");
+        return alias;
+    }
+
     public String getAlias(String table, boolean forceNewAlias) throws Exception {
         if (table == null) {
-            getCompiler().syntaxError(ERR_NULL_TABLE);
+            getContext().syntaxError(ERR_NULL_TABLE);
         }
 
-        String alias = null;
-
         if (!forceNewAlias) {
-            for (Map.Entry<String, String> entry : aliases.entrySet()) {
-                if (entry.getValue().equals(table)) {
-                    if (alias != null) {
-                        getCompiler().syntaxError(ERR_IF_TABLE_HAS_MULTIPLE_INSTANCES_USE_REF_FUNCTION, table);
-                    }
-
-                    alias = entry.getKey();
-                }
+            if (tablesWithMultipleAliases.contains(table)) {
+                getContext().syntaxError(ERR_IF_TABLE_HAS_MULTIPLE_INSTANCES_USE_REF_FUNCTION, table);
             }
 
+            String alias = aliasOfTable.get(table);
+
             if (alias != null) {
                 return alias;
             }
         }
 
-        alias = "t" + aliases.keySet().size();
+        String alias = "t" + aliases.size();
 
-        aliases.put(alias, table);
+        registerAlias(alias, table);
         return alias;
     }
 
+    private void registerAlias(String alias, String table) {
+        aliases.put(alias, table);
+
+        String existing = aliasOfTable.putIfAbsent(table, alias);
+
+        if (existing != null && !existing.equals(alias)) {
+            tablesWithMultipleAliases.add(table);
+        }
+    }
+
     public String getDriveTableOfQuery() {
-        return aliases.entrySet().stream().filter(e -> e.getKey().equals("t0")).map(Map.Entry::getValue).findFirst().orElse(null);
+        return aliases.get("t0");
     }
 
     public boolean isAlias(String s) {
-        return aliases.keySet().contains(s);
+        return aliases.containsKey(s);
     }
 
     public boolean isTable(String s) {
-        return aliases.values().contains(s);
+        return aliasOfTable.containsKey(s);
     }
 
-    public void addFilterClause(String clause) {
+    public void addFilterClause(Predicate clause) {
         if(filterClauseCatcher != null) {
             filterClauseCatcher.catchFilterClause(clause);
-        } else if(!filterClauses.contains(clause)) {
+        } else {
             filterClauses.add(clause);
         }
     }
 
-    public void addFromClause(String clause) {
-        if(!fromClauses.contains(clause)) {
-            fromClauses.add(clause);
-        }
+    /**
+     * Adds a filter clause given as SQL (e.g. by a custom function).
+     */
+    public void addFilterClause(String clause) {
+        addFilterClause(new RawPredicate(clause));
     }
 
-    public void addJoinClause(String clause) {
-        if(!joinClauses.contains(clause)) {
-            joinClauses.add(clause);
+    public void addFromClause(String table, String alias) {
+        TableReference reference = new TableReference(table, alias);
+
+        if (fromTables.add(reference)) {
+            fromClauses.add(new FromClause(reference));
         }
     }
 
+    public void addFromClause(Statement nested, String alias) {
+        fromClauses.add(new FromClause(nested, alias));
+    }
+
+    public void addJoinClause(JoinClause clause) {
+        joinClauses.add(clause);
+    }
+
+    /**
+     * Returns the select clause as SQL (e.g. 'SELECT DISTINCT a, b').
+     */
     public String getSelectClause() {
-        return selectClause;
+        StringBuilder selectClause = new StringBuilder(distinct ? "SELECT DISTINCT" : "SELECT");
+
+        if (selectColumns.isEmpty()) {
+            selectClause.append(" *");
+        }
+
+        for (int idx = 0; idx < selectColumns.size(); idx++) {
+            selectClause.append(' ').append(selectColumns.get(idx));
+
+            if (idx < selectColumns.size() - 1) {
+                selectClause.append(',');
+            }
+        }
+
+        return selectClause.toString();
+    }
+
+    public void setSelectClause(List<String> columns, boolean distinct) {
+        this.selectColumns = new ArrayList<>(columns);
+        this.distinct = distinct;
+    }
+
+    public void setGroupByClause(List<String> columns) {
+        this.groupByColumns = new ArrayList<>(columns);
+    }
+
+    public OrderBy getOrderBy() {
+        return orderBy;
+    }
+
+    public void setOrderBy(OrderBy orderBy) {
+        this.orderBy = orderBy;
     }
 
-    public void setSelectClause(String selectClause) {
-        this.selectClause = selectClause;
+    public boolean hasSeek() {
+        return seekColumns != null;
     }
 
-    public void setGroupByClause(String groupByClause) {
-        this.groupByClause = groupByClause;
+    /**
+     * Sets the columns and the values of the last row of the previous page (see After).
+     */
+    public void setSeek(List<String> columns, List<Value> values) {
+        this.seekColumns = columns;
+        this.seekValues = values;
     }
 
-    public String getOrderByClause() {
-        return orderByClause;
+    public Value getLimit() {
+        return limit;
     }
 
-    public void setOrderByClause(String orderByClause) {
-        this.orderByClause = orderByClause;
+    /**
+     * Sets the maximum number of rows and the number of rows to skip (null if none).
+     */
+    public void setLimit(Value limit, Value offset) {
+        this.limit = limit;
+        this.offset = offset;
     }
 
     public Map<String, String> getAliases() {
         return aliases;
     }
-}
\ No newline at end of file
+
+    /* Table (e.g. 'a t0') or nested statement (e.g. '(SELECT ...) t1') in the FROM clause. The query of a nested
+    statement is taken when the statement which contains it is executed.
+    */
+    private static class FromClause {
+        final TableReference table;
+        final Statement nested;
+        final String alias;
+
+        FromClause(TableReference table) {
+            this.table = table;
+            this.nested = null;
+            this.alias = table.getAlias();
+        }
+
+        FromClause(Statement nested, String alias) {
+            this.table = null;
+            this.nested = nested;
+            this.alias = alias;
+        }
+
+        /* Clauses are ordered on the last character of their alias.
+        */
+        char getSortKey() {
+            return alias.charAt(alias.length() - 1);
+        }
+
+        TableReference getTable() {
+            return table != null ? table : new TableReference(nested.getQuery(), alias);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package functionalsql.metrics;
+
+import functionalsql.CompileStatistics;
+import functionalsql.MetricsListener;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics listener which aggregates the statistics of all compilations of one or more compilers: counters, latency
+ * histograms per compile phase and the number of executions per FS function. Can be registered as MBean, e.g.
+ *
+ * CompilerMetrics metrics = new CompilerMetrics();
+ * metrics.registerMBean("orders");
+ * compiler.setMetricsListener(metrics);
+ */
+public class CompilerMetrics implements MetricsListener, CompilerMetricsMXBean {
+    private final LongAdder compilations = new LongAdder(), failures = new LongAdder(), cacheHits = new LongAdder(),
+            tokens = new LongAdder(), relationHits = new LongAdder(), relationMisses = new LongAdder(),
+            statementCharacters = new LongAdder(), sqlCharacters = new LongAdder();
+
+    private final LongAccumulator maximumNestingDepth = new LongAccumulator(Math::max, 0);
+
+    private final Histogram tokenize = new Histogram(), parse = new Histogram(), execute = new Histogram(), render = new Histogram();
+
+    private final Map<String, LongAdder> functionCounts = new ConcurrentHashMap<>();
+
+    @Override
+    public void compiled(CompileStatistics statistics) {
+        compilations.increment();
+        statementCharacters.add(statistics.getStatementLength());
+
+        if (statistics.getSqlLength() > 0) {
+            sqlCharacters.add(statistics.getSqlLength());
+        }
+
+        if (statistics.isFailed()) {
+            failures.increment();
+        }
+
+        if (statistics.isCacheHit()) {
+            cacheHits.increment();
+            return;
+        }
+
+        tokens.add(statistics.getTokens());
+        relationHits.add(statistics.getRelationHits());
+        relationMisses.add(statistics.getRelationMisses());
+        maximumNestingDepth.accumulate(statistics.getNestingDepth());
+
+        /* Phases which were not reached because of an error are not recorded.
+        */
+        if (!statistics.isFailed()) {
+            tokenize.record(statistics.getTokenizeNanos());
+            parse.record(statistics.getParseNanos());
+            execute.record(statistics.getExecuteNanos());
+
+            if (statistics.isRendered()) {
+                render.record(statistics.getRenderNanos());
+            }
+        }
+
+        for (Map.Entry<String, Integer> entry : statistics.getFunctionCounts().entrySet()) {
+            functionCounts.computeIfAbsent(entry.getKey(), f -> new LongAdder()).add(entry.getValue());
+        }
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server as 'functionalsql:type=CompilerMetrics,name=[name]'.
+     */
+    public ObjectName registerMBean(String name) throws Exception {
+        ObjectName objectName = new ObjectName("functionalsql:type=CompilerMetrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    @Override
+    public long getCompilations() {
+        return compilations.sum();
+    }
+
+    @Override
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    @Override
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    @Override
+    public long getTokens() {
+        return tokens.sum();
+    }
+
+    @Override
+    public long getRelationHits() {
+        return relationHits.sum();
+    }
+
+    @Override
+    public long getRelationMisses() {
+        return relationMisses.sum();
+    }
+
+    @Override
+    public long getStatementCharacters() {
+        return statementCharacters.sum();
+    }
+
+    @Override
+    public long getSqlCharacters() {
+        return sqlCharacters.sum();
+    }
+
+    @Override
+    public int getMaximumNestingDepth() {
+        return (int)maximumNestingDepth.get();
+    }
+
+    @Override
+    public HistogramSnapshot getTokenizeLatency() {
+        return tokenize.snapshot();
+    }
+
+    @Override
+    public HistogramSnapshot getParseLatency() {
+        return parse.snapshot();
+    }
+
+    @Override
+    public HistogramSnapshot getExecuteLatency() {
+        return execute.snapshot();
+    }
+
+    @Override
+    public HistogramSnapshot getRenderLatency() {
+        return render.snapshot();
+    }
+
+    @Override
+    public Map<String, Long> getFunctionCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        functionCounts.forEach((function, count) -> counts.put(function, count.sum()));
+        return counts;
+    }
+
+    @Override
+    public void reset() {
+        for (LongAdder counter : new LongAdder[] { compilations, failures, cacheHits, tokens, relationHits, relationMisses, statementCharacters, sqlCharacters }) {
+            counter.reset();
+        }
+
+        maximumNestingDepth.reset();
+
+        for (Histogram histogram : new Histogram[] { tokenize, parse, execute, render }) {
+            histogram.reset();
+        }
+
+        functionCounts.clear();
+    }
+}
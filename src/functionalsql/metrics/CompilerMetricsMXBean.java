@@ -0,0 +1,38 @@
+package functionalsql.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of CompilerMetrics. Latencies are in nanoseconds.
+ */
+public interface CompilerMetricsMXBean {
+    long getCompilations();
+
+    long getFailures();
+
+    long getCacheHits();
+
+    long getTokens();
+
+    long getRelationHits();
+
+    long getRelationMisses();
+
+    long getStatementCharacters();
+
+    long getSqlCharacters();
+
+    int getMaximumNestingDepth();
+
+    HistogramSnapshot getTokenizeLatency();
+
+    HistogramSnapshot getParseLatency();
+
+    HistogramSnapshot getExecuteLatency();
+
+    HistogramSnapshot getRenderLatency();
+
+    Map<String, Long> getFunctionCounts();
+
+    void reset();
+}
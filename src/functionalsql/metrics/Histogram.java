@@ -0,0 +1,72 @@
+package functionalsql.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free latency histogram with a bucket per power of two nanoseconds.
+ *
+ * Percentiles are reported as the upper bound of their bucket, so they are at most a factor two too high.
+ */
+final class Histogram {
+    private final AtomicLongArray buckets = new AtomicLongArray(64);
+
+    private final LongAdder count = new LongAdder(), total = new LongAdder();
+
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+
+        buckets.incrementAndGet(63 - Long.numberOfLeadingZeros(nanos | 1));
+        count.increment();
+        total.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    void reset() {
+        for (int idx = 0; idx < buckets.length(); idx++) {
+            buckets.set(idx, 0);
+        }
+
+        count.reset();
+        total.reset();
+        max.reset();
+    }
+
+    HistogramSnapshot snapshot() {
+        long[] counts = new long[buckets.length()];
+        long count = 0;
+
+        for (int idx = 0; idx < counts.length; idx++) {
+            counts[idx] = buckets.get(idx);
+            count += counts[idx];
+        }
+
+        long max = this.max.get();
+
+        return new HistogramSnapshot(count,
+                count > 0 ? total.sum() / count : 0,
+                max,
+                percentile(counts, count, 0.5, max),
+                percentile(counts, count, 0.9, max),
+                percentile(counts, count, 0.99, max));
+    }
+
+    private static long percentile(long[] counts, long count, double percentile, long max) {
+        long rank = (long)Math.ceil(count * percentile), seen = 0;
+
+        for (int idx = 0; idx < counts.length; idx++) {
+            seen += counts[idx];
+
+            if (seen >= rank && seen > 0) {
+                return Math.min((1L << (idx + 1)) - 1, max);
+            }
+        }
+
+        return 0;
+    }
+}
@@ -0,0 +1,49 @@
+package functionalsql.metrics;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Latencies of one compile phase in nanoseconds. Exposed through JMX as composite data.
+ */
+public final class HistogramSnapshot {
+    private final long count, mean, max, p50, p90, p99;
+
+    @ConstructorProperties({"count", "mean", "max", "p50", "p90", "p99"})
+    public HistogramSnapshot(long count, long mean, long max, long p50, long p90, long p99) {
+        this.count = count;
+        this.mean = mean;
+        this.max = max;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMean() {
+        return mean;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public long getP50() {
+        return p50;
+    }
+
+    public long getP90() {
+        return p90;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d mean=%d max=%d p50=%d p90=%d p99=%d", count, mean, max, p50, p90, p99);
+    }
+}
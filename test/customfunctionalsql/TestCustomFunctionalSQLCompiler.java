@@ -1,8 +1,15 @@
 package customfunctionalsql;
 
+import functionalsql.Function;
 import functionalsql.FunctionalSQLCompiler;
+import functionalsql.ast.Comparison;
+import functionalsql.consumer.ArgumentSchema;
+import functionalsql.consumer.TokenConsumer;
 import org.junit.Test;
 
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 
@@ -14,6 +21,8 @@ public class TestCustomFunctionalSQLCompiler {
         c.addRelation("a", "id", "b", "id");
         assertEquals("SELECT * FROM a t0 WHERE id = 10", c.parse("a id(10)"));
         assertEquals("SELECT * FROM a t0, b t1 WHERE t0.id = t1.id AND t1.id = 10", c.parse("a join(b) id(b, 10)"));
+        assertEquals("SELECT * FROM a t0 WHERE id = ?", c.parse("a id(?)"));
+        assertEquals(Collections.singletonList(10), c.compileTemplate("a join(b) id(b, :id)").bind(Collections.singletonMap("id", 10)));
 
         try {
             c.parse("a id(b)");
@@ -37,6 +46,56 @@ public class TestCustomFunctionalSQLCompiler {
         }
     }
 
+    @Test
+    public void testRegistration() throws Exception {
+        FunctionalSQLCompiler reflective = new FunctionalSQLCompiler();
+        reflective.addCustomFunction("byclass", Id.class);
+        assertEquals("SELECT * FROM a t0 WHERE id = 10", reflective.parse("a byclass(10)"));
+
+        FunctionalSQLCompiler c = new FunctionalSQLCompiler();
+        c.addCustomFunction("byfactory", Id::new);
+        assertEquals("SELECT * FROM a t0 WHERE id = 10", c.parse("a byfactory(10)"));
+        assertEquals(Id.class, c.getFunction("byfactory"));
+
+        try {
+            c.parse("a join(b, byfactory(10))");
+            fail();
+        } catch(Exception e) {
+            checkException(e, createError(FunctionalSQLCompiler.ERR_CANNOT_USE_FUNCTION_AS_ARGUMENT_OF_FUNCTION, "byfactory", "join"));
+        }
+    }
+
+    @Test
+    public void testArgumentsAreBuiltOncePerClass() throws Exception {
+        FunctionalSQLCompiler c = new FunctionalSQLCompiler();
+        c.addCustomFunction("counted", Counted::new);
+
+        assertEquals("SELECT * FROM a t0 WHERE id = 1 AND id = 2", c.parse("a counted(1) counted(2)"));
+
+        FunctionalSQLCompiler other = new FunctionalSQLCompiler();
+        other.addCustomFunction("counted", Counted.class);
+        assertEquals("SELECT * FROM a t0 WHERE id = 3", other.parse("a counted(3)"));
+
+        assertEquals(1, Counted.BUILDS.get());
+    }
+
+    public static class Counted extends Function {
+        private final static AtomicInteger BUILDS = new AtomicInteger();
+
+        private String value;
+
+        @Override
+        protected void buildArguments(ArgumentSchema.Builder arguments) {
+            BUILDS.incrementAndGet();
+            arguments.build(new TokenConsumer<Counted>((counted, token) -> counted.value = token).singleValue().mandatory());
+        }
+
+        @Override
+        public void execute() throws Exception {
+            getContext().getStatement().addFilterClause(new Comparison("id", "=", getContext().toValue(value)));
+        }
+    }
+
     private void checkException(Throwable e , String message) {
         if( e.getMessage().indexOf(message) < 0 ) {
             fail();
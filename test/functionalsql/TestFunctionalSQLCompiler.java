@@ -1,10 +1,39 @@
 package functionalsql;
 
+import functionalsql.ast.ColumnComparison;
+import functionalsql.ast.Dialect;
+import functionalsql.ast.InList;
+import functionalsql.ast.InSubquery;
+import functionalsql.ast.JoinClause;
+import functionalsql.ast.Query;
+import functionalsql.metrics.CompilerMetrics;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 public class TestFunctionalSQLCompiler {
@@ -281,6 +310,19 @@ public class TestFunctionalSQLCompiler {
         assertEquals(c.parse("(((((a) filter(field, 2)))))"), c.parse("((((a))) filter(field, 2))"));
     }
 
+    @Test
+    public void testParseToAppendable() throws Exception {
+        FunctionalSQLCompiler c = new FunctionalSQLCompiler();
+        c.addRelation("b", "id", "c", "id");
+
+        StringBuilder sql = new StringBuilder("-- ");
+        c.parse("a join((b join(c)), id, id) leftjoin((c), id, id) in(v, (b filter(w, 1, 2)))", sql);
+
+        assertEquals("-- SELECT * FROM a t0, (SELECT * FROM b t0, c t1 WHERE t0.id = t1.id) t1 " +
+                "LEFT JOIN (SELECT * FROM c t0) t2 ON t0.id = t2.id WHERE t0.id = t1.id AND v IN (SELECT * FROM b t0 WHERE w IN ( 1, 2 ))",
+                sql.toString());
+    }
+
     @Test
     public void testJoin() throws Exception {
         FunctionalSQLCompiler c = new FunctionalSQLCompiler();
@@ -319,6 +361,41 @@ public class TestFunctionalSQLCompiler {
         }
     }
 
+    @Test
+    public void testDefaultRelation() throws Exception {
+        FunctionalSQLCompiler c = new FunctionalSQLCompiler();
+        c.addDefaultRelation("id", "id");
+        c.addRelation("a", "v_a", "b", "v_b");
+
+        assertEquals("SELECT * FROM a t0, b t1 WHERE t0.v_a = t1.v_b", c.parse("a join(b)"));
+        assertEquals("SELECT * FROM a t0, c t1 WHERE t0.id = t1.id", c.parse("a join(c)"));
+        assertEquals("SELECT * FROM a t0, c t1 WHERE t0.id = t1.id", c.parse("a join(c, id)"));
+
+        try {
+            c.parse("a join(c, v_a)");
+            fail();
+        } catch(Exception e) {
+            checkException(e, FunctionalSQLCompiler.ERR_NO_JOIN_COLUMNS_DEFINED_AND_NO_RELATION_FOUND);
+        }
+    }
+
+    @Test
+    public void testRelationLookup() throws Exception {
+        FunctionalSQLCompiler c = new FunctionalSQLCompiler();
+
+        for (int idx = 0; idx < 40000; idx++) {
+            c.addRelation("a" + idx, "id", "b" + idx, "a_id");
+            c.addRelation("a" + idx, "id", "b" + idx, "a_id");
+        }
+
+        c.addRelation("b7", "x", "a7", "y");
+
+        assertEquals("SELECT * FROM a7 t0, b7 t1 WHERE t0.id = t1.a_id", c.parse("a7 join(b7)"));
+        assertEquals("SELECT * FROM b7 t0, a7 t1 WHERE t0.a_id = t1.id", c.parse("b7 join(a7)"));
+        assertEquals("SELECT * FROM b7 t0, a7 t1 WHERE t0.x = t1.y", c.parse("b7 join(a7, x)"));
+        assertEquals("SELECT * FROM a7 t0, b7 t1 WHERE t0.y = t1.x", c.parse("a7 join(b7, y)"));
+    }
+
     @Test
     public void testPrint() throws Exception {
         FunctionalSQLCompiler c = new FunctionalSQLCompiler();
@@ -453,6 +530,29 @@ public class TestFunctionalSQLCompiler {
         }
     }
 
+    @Test
+    public void testQuotedValues() throws Exception {
+        FunctionalSQLCompiler c = new FunctionalSQLCompiler();
+        assertEquals("SELECT * FROM a t0 WHERE v = 'a, (b)'", c.parse("a filter(v, 'a, (b)')"));
+        assertEquals("SELECT * FROM a t0 WHERE v = ''", c.parse("a filter(v, '')"));
+        assertEquals("SELECT * FROM a t0 WHERE v IN ( 'join', ' x ' )", c.parse("a filter(v,'join',' x ')"));
+    }
+
+    @Test
+    public void testSyntaxErrorPosition() throws Exception {
+        FunctionalSQLCompiler c = new FunctionalSQLCompiler();
+
+        try {
+            c.parse("a filter(v, 1) like(v, x)");
+            fail();
+        } catch(Exception e) {
+            assertEquals("Syntax error: " + createError(FunctionalSQLCompiler.ERR_VALUE_SHOULD_BE_QUOTED, "x") + "\n" +
+                    "a filter(v, 1) like(v, x)\n" +
+                    "                        |\n" +
+                    "-------------------------", e.getMessage());
+        }
+    }
+
     @Test
     public void testFilterDate() throws Exception {
         FunctionalSQLCompiler c = new FunctionalSQLCompiler();
@@ -574,6 +674,667 @@ public class TestFunctionalSQLCompiler {
         assertEquals( "SELECT * FROM a t0 WHERE v IN (SELECT * FROM b t0, c t1 WHERE t0.id = t1.id)", c.parse("a in(v, ((b join(c))))"));
     }
 
+    @Test
+    public void testConcurrentParse() throws Exception {
+        FunctionalSQLCompiler c = new FunctionalSQLCompiler();
+        c.addRelation("a", "id", "b", "id");
+        c.addRelation("b", "id", "c", "id");
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<String>> results = new ArrayList<>();
+
+        try {
+            for (int idx = 0; idx < 1000; idx++) {
+                String statement = idx % 2 == 0 ? "a join(b, join(c)) filter(v, " + idx + ")" : "a fulljoin(b) print(a)";
+                results.add(executor.submit(() -> c.parse(statement)));
+            }
+
+            for (int idx = 0; idx < results.size(); idx++) {
+                assertEquals(idx % 2 == 0 ?
+                                "SELECT * FROM a t0, b t1, c t2 WHERE t0.id = t1.id AND t1.id = t2.id AND v = " + idx :
+                                "SELECT t0.* FROM a t0 FULL JOIN b t1 ON t0.id = t1.id",
+                        results.get(idx).get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testConfigurationChangeAfterParse() throws Exception {
+        FunctionalSQLCompiler c = new FunctionalSQLCompiler();
+        assertEquals("SELECT * FROM a t0", c.parse("a"));
+
+        c.addRelation("a", "id", "b", "id");
+        assertEquals("SELECT * FROM a t0, b t1 WHERE t0.id = t1.id", c.parse("a join(b)"));
+
+        c.renameFunction("join", "j");
+        assertEquals("SELECT * FROM a t0, b t1 WHERE t0.id = t1.id", c.parse("a j(b)"));
+    }
+
+    @Test
+    public void testStatementCache() throws Exception {
+        FunctionalSQLCompiler c = new FunctionalSQLCompiler();
+        StatementCache cache = new StatementCache(2, StatementCache.Eviction.LRU);
+        c.setStatementCache(cache);
+
+        try {
+            c.parse("a join(b)");
+            fail();
+        } catch(Exception e) {
+            checkException(e, FunctionalSQLCompiler.ERR_NO_JOIN_COLUMNS_DEFINED_AND_NO_RELATION_FOUND);
+        }
+
+        assertEquals(0, cache.size());
+
+        assertEquals("SELECT * FROM a t0 WHERE v = 1", c.parse("a filter(v, 1)"));
+        assertEquals("SELECT * FROM a t0 WHERE v = 1", c.parse("a filter(v, 1)"));
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+
+        /* Changing the configuration invalidates the cached statements.
+        */
+        c.addRelation("a", "id", "b", "id");
+        assertEquals(0, cache.size());
+        assertEquals("SELECT * FROM a t0, b t1 WHERE t0.id = t1.id", c.parse("a join(b)"));
+
+        c.renameFunction("filter", "f");
+
+        try {
+            c.parse("a filter(v, 1)");
+            fail();
+        } catch(Exception e) {
+            checkException(e, createError(FunctionalSQLCompiler.ERR_UNKNOWN_FUNCTION, "filter"));
+        }
+    }
+
+    @Test
+    public void testStatementCacheEviction() throws Exception {
+        StatementCache lru = new StatementCache(2, StatementCache.Eviction.LRU);
+        lru.put("a", 0, "A");
+        lru.put("b", 0, "B");
+        assertEquals("A", lru.get("a", 0));
+        lru.put("c", 0, "C");
+        assertEquals(2, lru.size());
+        assertEquals(null, lru.get("b", 0));
+        assertEquals("A", lru.get("a", 0));
+        assertEquals(null, lru.get("a", 1));
+        assertEquals(1, lru.getEvictions());
+
+        StatementCache lfu = new StatementCache(2, StatementCache.Eviction.LFU);
+        lfu.put("a", 0, "A");
+        lfu.put("b", 0, "B");
+        lfu.get("a", 0);
+        lfu.get("a", 0);
+        lfu.get("b", 0);
+        lfu.put("c", 0, "C");
+        assertEquals(null, lfu.get("b", 0));
+        assertEquals("A", lfu.get("a", 0));
+
+        /* The frequency of a is halved for every 20 hits, so it drops below that of b.
+        */
+        StatementCache aged = new StatementCache(2, StatementCache.Eviction.LFU);
+        aged.put("a", 0, "A");
+
+        for (int i = 0; i < 100; i++) {
+            aged.get("a", 0);
+        }
+
+        aged.put("b", 0, "B");
+
+        for (int i = 0; i < 10; i++) {
+            aged.get("b", 0);
+        }
+
+        aged.put("c", 0, "C");
+        assertEquals(null, aged.get("a", 0));
+        assertEquals("B", aged.get("b", 0));
+
+        /* Larger caches choose the victim from a sample.
+        */
+        StatementCache sampled = new StatementCache(100, StatementCache.Eviction.LRU);
+
+        for (int i = 0; i < 1000; i++) {
+            sampled.put("s" + i, 0, "S");
+        }
+
+        assertEquals(100, sampled.size());
+        assertEquals(900, sampled.getEvictions());
+        assertEquals("S", sampled.get("s999", 0));
+
+        StatementCache weighted = new StatementCache(10, 6, StatementCache.Eviction.LRU);
+        weighted.put("a", 0, "AA");
+        weighted.put("b", 0, "BB");
+        weighted.put("c", 0, "CC");
+        assertEquals(2, weighted.size());
+        assertEquals(6, weighted.getWeight());
+        weighted.put("d", 0, "too long to cache");
+        assertEquals(null, weighted.get("d", 0));
+    }
+
+    @Test
+    public void testCompileToQuery() throws Exception {
+        FunctionalSQLCompiler c = new FunctionalSQLCompiler();
+        String statement = "a leftjoin(b, id, id) filter(v, 1, 2) in(w, c filter(x, 'y')) desc(v)";
+
+        Query query = c.compile(statement);
+
+        assertEquals(1, query.getFrom().size());
+        assertEquals("a", query.getFrom().get(0).getTable());
+        assertEquals("t0", query.getFrom().get(0).getAlias());
+
+        JoinClause join = query.getJoins().get(0);
+        assertEquals(JoinClause.Type.LEFT, join.getType());
+        assertEquals("b", join.getTable().getTable());
+        assertEquals("t0.id", ((ColumnComparison)join.getCondition()).getLeft());
+        assertEquals("t1.id", ((ColumnComparison)join.getCondition()).getRight());
+
+        assertEquals(2, query.getWhere().size());
+        assertEquals(2, ((InList)query.getWhere().get(0)).getValues().size());
+        Query subquery = ((InSubquery)query.getWhere().get(1)).getQuery();
+        assertEquals("c", subquery.getFrom().get(0).getTable());
+
+        assertEquals(false, query.getOrderBy().isAscending());
+        assertEquals(c.parse(statement), query.toString());
+        assertEquals(query, c.compile(statement));
+    }
+
+    @Test
+    public void testTemplate() throws Exception {
+        FunctionalSQLCompiler c = new FunctionalSQLCompiler();
+
+        Template template = c.compileTemplate("a filter(w, ?) filter(v, >, ?) like(x, :pattern) filterdate(d, ?, ?) in(id, b filter(y, ?, 1))");
+        assertEquals("SELECT * FROM a t0 WHERE d < ? AND d >= ? AND id IN (SELECT * FROM b t0 WHERE y IN ( ?, 1 )) AND v > ? AND w = ? AND x LIKE ?",
+                template.getSql());
+
+        Map<String, Object> named = new HashMap<>();
+        named.put("pattern", "a%");
+        assertEquals(Arrays.asList(20140101, 20120101, 7, 2, 1, "a%"), template.bind(named, 1, 2, 20120101, 20140101, 7));
+
+        try {
+            template.bind(1, 2);
+            fail();
+        } catch (IllegalArgumentException e) {
+            checkException(e, "No value for parameter");
+        }
+
+        try {
+            c.parse("a filter(?, 1)");
+            fail();
+        } catch (Exception e) {
+            checkException(e, createError(FunctionalSQLCompiler.ERR_PARAMETER_AS_TABLE_OR_COLUMN, "?"));
+        }
+    }
+
+    @Test
+    public void testParameterizeLiterals() throws Exception {
+        FunctionalSQLCompiler c = new FunctionalSQLCompiler();
+        c.setParameterizeLiterals(true);
+
+        Template template = c.compileTemplate("a filter(v, 1, 'b') filter(w, >=, 2.5) like(x, 'a%') filterdate(d, 20120101) filter(y, ?)");
+        assertEquals("SELECT * FROM a t0 WHERE d = ? AND v IN ( ?, ? ) AND w >= ? AND x LIKE ? AND y = ?", template.getSql());
+        assertEquals(Arrays.asList("20120101", 1L, "b", new BigDecimal("2.5"), "a%", "c"), template.bind("c"));
+        assertEquals(template.getSql(), c.compileTemplate("a filter(v, 3, 'e') filter(w, >=, 1) like(x, 'b%') filterdate(d, 20130101) filter(y, ?)").getSql());
+        assertEquals("SELECT * FROM a t0 WHERE v = 1", c.parse("a filter(v, 1)"));
+    }
+
+    @Test
+    public void testValueListStrategy() throws Exception {
+        FunctionalSQLCompiler c = new FunctionalSQLCompiler();
+        assertEquals("SELECT * FROM a t0 WHERE v IN ( 1, 2, 3 )", c.parse("a filter(v, 1, 2, 3)"));
+
+        c.setValueListStrategy(ValueListStrategy.CHUNKED_IN, 2);
+        assertEquals("SELECT * FROM a t0 WHERE ( v IN ( 1, 2 ) OR v IN ( 3 ) )", c.parse("a filter(v, 1, 2, 3)"));
+        assertEquals("SELECT * FROM a t0 WHERE ( v NOT IN ( 1, 2 ) AND v NOT IN ( 3 ) )", c.parse("a notfilter(v, 1, 2, 3)"));
+        assertEquals("SELECT * FROM a t0 WHERE v IN ( 1, 2 )", c.parse("a filter(v, 1, 2)"));
+
+        c.setValueListStrategy(ValueListStrategy.VALUES, 2);
+        assertEquals("SELECT * FROM a t0 WHERE v IN (SELECT c FROM (VALUES (1), ('b'), (3)) AS v(c))", c.parse("a filter(v, 1, 'b', 3)"));
+
+        c.setParameterizeLiterals(true);
+        Template template = c.compileTemplate("a notfilter(v, 1, 2, ?)");
+        assertEquals("SELECT * FROM a t0 WHERE v NOT IN (SELECT c FROM (VALUES (?), (?), (?)) AS v(c))", template.getSql());
+        assertEquals(Arrays.asList(1L, 2L, 3L), template.bind(3L));
+
+        c.setParameterizeLiterals(false);
+        c.setDialect(Dialect.MYSQL);
+        assertEquals("SELECT * FROM a t0 WHERE v IN (SELECT c FROM (VALUES ROW(1), ROW(2), ROW(3)) AS v(c))", c.parse("a filter(v, 1, 2, 3)"));
+
+        c.setDialect(Dialect.ORACLE);
+        assertEquals("SELECT * FROM a t0 WHERE v NOT IN (SELECT 1 FROM DUAL UNION ALL SELECT 'b' FROM DUAL UNION ALL SELECT 3 FROM DUAL)", c.parse("a notfilter(v, 1, 'b', 3)"));
+    }
+
+    @Test
+    public void testArrayBinding() throws Exception {
+        FunctionalSQLCompiler c = new FunctionalSQLCompiler();
+        c.setArrayBinding(true);
+        assertEquals("SELECT * FROM a t0 WHERE v IN ( 1, 2 )", c.compileTemplate("a filter(v, 1, 2)").getSql()); // ANSI has no arrays.
+
+        c.setDialect(Dialect.POSTGRESQL);
+        Template template = c.compileTemplate("a filter(v, 1, ?, 3) notfilter(w, 'x')");
+        assertEquals("SELECT * FROM a t0 WHERE v = ANY(?) AND w <> ALL(?)", template.getSql());
+        assertEquals(template.getSql(), c.compileTemplate("a filter(v, 4) notfilter(w, 'y', 'z')").getSql());
+
+        List<Object> binds = template.bind(2);
+        assertEquals(Arrays.asList(1L, 2, 3L), Arrays.asList((Object[])binds.get(0)));
+        assertEquals(Arrays.asList("x"), Arrays.asList((Object[])binds.get(1)));
+
+        assertEquals("SELECT * FROM a t0 WHERE v IN ( 1 )", c.parse("a filter(v, 1)"));
+
+        c.setDialect(Dialect.HSQLDB);
+        assertEquals("SELECT * FROM a t0 WHERE v IN (UNNEST(?))", c.compileTemplate("a filter(v, 1, 2)").getSql());
+    }
+
+    @Test
+    public void testDeepNesting() throws Exception {
+        FunctionalSQLCompiler c = new FunctionalSQLCompiler();
+        c.addDefaultRelation("id", "id");
+
+        int depth = 10000;
+        StringBuilder joins = new StringBuilder("a");
+        StringBuilder brackets = new StringBuilder();
+
+        for (int idx = 1; idx <= depth; idx++) {
+            joins.append(" join(b").append(idx).append(idx < depth ? "," : "");
+            brackets.append('(');
+        }
+
+        brackets.append('a');
+
+        for (int idx = 1; idx <= depth; idx++) {
+            joins.append(')');
+            brackets.append(')');
+        }
+
+        /* Nested statements and ors are not collapsed, so they are nested as deep in the query and its SQL.
+        */
+        StringBuilder statements = new StringBuilder("a");
+        StringBuilder ors = new StringBuilder("a ");
+
+        for (int idx = 1; idx <= depth; idx++) {
+            statements.append(" join((b").append(idx);
+            ors.append("or(filter(v, ").append(idx).append("), ");
+        }
+
+        ors.append("filter(v, 0)");
+
+        for (int idx = 1; idx <= depth; idx++) {
+            statements.append("), id, id)");
+            ors.append(')');
+        }
+
+        /* A small stack shows that the nesting depth does not depend on the stack size.
+        */
+        List<String> sql = new ArrayList<>();
+        List<Throwable> errors = new ArrayList<>();
+
+        Thread thread = new Thread(null, () -> {
+            try {
+                sql.add(c.parse(joins.toString()));
+                sql.add(c.parse(brackets.toString()));
+                sql.add(c.parse(statements.toString()));
+                sql.add(c.parse(ors.toString()));
+                sql.add(String.valueOf(c.compile(ors.toString()).equals(c.compile(ors.toString() + " "))));
+
+                FunctionalSQLCompiler flatten = new FunctionalSQLCompiler();
+                flatten.addDefaultRelation("id", "id");
+                flatten.setFlattenSubqueries(true);
+                sql.add(flatten.parse(statements.toString()));
+                sql.add(flatten.parse(ors.toString()));
+
+                FunctionalSQLCompiler infer = new FunctionalSQLCompiler();
+                infer.addDefaultRelation("id", "id");
+                infer.setInferPredicates(true);
+                sql.add(infer.parse(joins + " filter(a.id, 5)"));
+                sql.add(infer.parse(statements.toString()));
+
+                FunctionalSQLCompiler normalize = new FunctionalSQLCompiler();
+                normalize.addDefaultRelation("id", "id");
+                normalize.setNormalizeFilters(true);
+                sql.add(normalize.parse(statements.toString()));
+                sql.add(normalize.parse(ors.toString()));
+            } catch (Throwable e) {
+                errors.add(e);
+            }
+        }, "deep-nesting", 256 * 1024);
+
+        thread.start();
+        thread.join();
+
+        assertEquals(Collections.emptyList(), errors);
+        assertTrue(sql.get(0).startsWith("SELECT * FROM a t0, b10000 t10000, "));
+        assertTrue(sql.get(0).contains(", b5000 t5000, "));
+        assertTrue(sql.get(0).endsWith(" AND t9998.id = t9999.id AND t9999.id = t10000.id"));
+        assertEquals("SELECT * FROM a t0", sql.get(1));
+        assertTrue(sql.get(2).startsWith("SELECT * FROM a t0, (SELECT * FROM b1 t0, (SELECT * FROM b2 t0, "));
+        assertTrue(sql.get(2).contains(", (SELECT * FROM b10000 t0) t1 WHERE t0.id = t1.id) t1 WHERE t0.id = t1.id) t1 WHERE "));
+        assertTrue(sql.get(3).startsWith("SELECT * FROM a t0 WHERE ( v = 1 OR ( v = 2 OR "));
+        assertTrue(sql.get(3).endsWith("( v = 10000 OR v = 0 )" + String.join("", Collections.nCopies(9999, " )"))));
+        assertEquals("true", sql.get(4));
+        assertTrue(sql.get(5).contains("(SELECT * FROM b9999 t0, b10000 t2 WHERE t0.id = t2.id) t1 WHERE "));
+        assertEquals(sql.get(3), sql.get(6));
+        assertTrue(sql.get(7).endsWith(" AND t9999.id = 5 AND t10000.id = 5"));
+        assertEquals(sql.get(2), sql.get(8));
+        assertEquals(sql.get(2), sql.get(9));
+        assertTrue(sql.get(10).startsWith("SELECT * FROM a t0 WHERE v IN ( 1, 2, 3, "));
+        assertTrue(sql.get(10).endsWith(", 9999, 10000, 0 )"));
+    }
+
+    @Test
+    public void testCompileException() throws Exception {
+        FunctionalSQLCompiler c = new FunctionalSQLCompiler();
+
+        try {
+            c.parse("a filter(v, x)");
+            fail();
+        } catch (CompileException e) {
+            assertEquals(FunctionalSQLCompiler.ERR_VALUE_SHOULD_BE_QUOTED, e.getError());
+            assertEquals(Arrays.asList("x"), Arrays.asList(e.getArguments()));
+            assertEquals(13, e.getOffset()); // Filter values are checked when the function is closed.
+            assertEquals(0, e.getStackTrace().length);
+            assertEquals("Syntax error: Value (x) should be quoted.\na filter(v, x)\n             |\n--------------", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testValidate() throws Exception {
+        FunctionalSQLCompiler c = new FunctionalSQLCompiler();
+
+        assertEquals(Collections.emptyList(), c.validate("a filter(v, 1) asc(v)"));
+
+        List<CompileException> diagnostics = c.validate("a filter(v, x) join(b) unknown(c, d) asc(v) asc(w) filter(w, 'a)");
+        List<String> errors = new ArrayList<>();
+
+        for (CompileException diagnostic : diagnostics) {
+            errors.add(diagnostic.getError());
+        }
+
+        assertEquals(Arrays.asList(
+                FunctionalSQLCompiler.ERR_VALUE_SHOULD_BE_QUOTED,
+                FunctionalSQLCompiler.ERR_NO_JOIN_COLUMNS_DEFINED_AND_NO_RELATION_FOUND,
+                FunctionalSQLCompiler.ERR_UNKNOWN_FUNCTION,
+                FunctionalSQLCompiler.ERR_ORDER_BY_CLAUSE_ALREADY_DEFINED,
+                FunctionalSQLCompiler.ERR_MISSING_END_QUOTE), errors);
+        assertEquals(23, diagnostics.get(2).getOffset());
+    }
+
+    @Test
+    public void testMetrics() throws Exception {
+        FunctionalSQLCompiler c = new FunctionalSQLCompiler();
+        c.addRelation("a", "id", "b", "id");
+
+        List<CompileStatistics> compiled = new ArrayList<>();
+        CompilerMetrics metrics = new CompilerMetrics();
+
+        c.setMetricsListener(statistics -> {
+            compiled.add(statistics);
+            metrics.compiled(statistics);
+        });
+
+        c.parse("a join(b) filter(b.v, 1, 2) filter(w, 3)");
+
+        CompileStatistics statistics = compiled.get(0);
+        assertEquals(1, statistics.getRelationHits());
+        assertEquals(2, (int)statistics.getFunctionCounts().get("filter"));
+        assertEquals(1, (int)statistics.getFunctionCounts().get("join"));
+        assertEquals(1, statistics.getNestingDepth());
+        assertEquals(19, statistics.getTokens());
+        assertTrue(statistics.getSqlLength() > 0 && statistics.isRendered() && !statistics.isFailed());
+
+        try {
+            c.parse("a join(c)");
+            fail();
+        } catch (CompileException e) {
+            assertTrue(compiled.get(1).isFailed());
+            assertEquals(1, compiled.get(1).getRelationMisses());
+        }
+
+        ObjectName name = metrics.registerMBean("test");
+
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+            assertEquals(2L, server.getAttribute(name, "Compilations"));
+            assertEquals(1L, server.getAttribute(name, "Failures"));
+            assertEquals(1L, ((CompositeData)server.getAttribute(name, "ParseLatency")).get("count"));
+
+            server.invoke(name, "reset", null, null);
+            assertEquals(0L, server.getAttribute(name, "Compilations"));
+        } finally {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        }
+    }
+
+    @Test
+    public void testFlightRecorderEvents() throws Exception {
+        FunctionalSQLCompiler c = new FunctionalSQLCompiler();
+        c.addRelation("a", "id", "b", "id");
+        c.setStatementCache(new StatementCache(10, StatementCache.Eviction.LRU));
+
+        String statement = "a join(b) filter(b.v, 1)";
+        Path file = Files.createTempFile("functionalsql", ".jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable("functionalsql.Compile");
+            recording.enable("functionalsql.FunctionExecution");
+            recording.start();
+
+            c.parse(statement);
+            c.parse(statement);
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> compiles = new ArrayList<>();
+        List<String> functions = new ArrayList<>();
+
+        for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+            if (event.getEventType().getName().equals("functionalsql.Compile")) {
+                compiles.add(event);
+            } else if (event.getEventType().getName().equals("functionalsql.FunctionExecution")) {
+                functions.add(event.getString("function"));
+            }
+        }
+
+        Files.delete(file);
+
+        assertEquals(2, compiles.size());
+        assertEquals(statement.hashCode(), compiles.get(0).getInt("statementHash"));
+        assertEquals(1, compiles.get(0).getInt("relationsResolved"));
+        assertEquals(1, compiles.get(0).getInt("nestingDepth"));
+        assertTrue(compiles.get(0).getInt("tokens") > 0);
+        assertTrue(!compiles.get(0).getBoolean("cacheHit") && compiles.get(1).getBoolean("cacheHit"));
+        assertEquals(Arrays.asList("join", "filter", "("), functions);
+    }
+
+    @Test
+    public void testPrecompiler() throws Exception {
+        FunctionalSQLCompiler c = new FunctionalSQLCompiler();
+        c.addRelation("a", "id", "b", "id");
+
+        Precompiler precompiler = new Precompiler(c);
+        String source = precompiler.generate("orders", "CustomerOrders", "customer_orders.fs", Arrays.asList(
+                "# All rows.",
+                "all = a",
+                "",
+                "byIdAndName = a join(b)",
+                "    filter(b.id, :id) filter(v, 'x')"));
+
+        assertTrue(source.startsWith("package orders;"));
+        assertTrue(source.contains("public final class CustomerOrders {"));
+        assertTrue(source.contains("public static final String ALL = \"SELECT * FROM a t0\";"));
+        assertTrue(source.contains("public static final String BY_ID_AND_NAME = \"" + c.compileTemplate("a join(b) filter(b.id, :id) filter(v, 'x')").getSql() + "\";"));
+        assertTrue(source.contains("public static final java.util.List<String> BY_ID_AND_NAME_PARAMETERS = java.util.Collections.unmodifiableList(java.util.Arrays.asList(\":id\"));"));
+        assertTrue(!source.contains("ALL_PARAMETERS"));
+
+        try {
+            precompiler.generate("orders", "CustomerOrders", "customer_orders.fs", Arrays.asList("all = a", "", "wrong = a join(c)"));
+            fail();
+        } catch (Exception e) {
+            assertTrue(e.getMessage().startsWith("customer_orders.fs:3: Syntax error: " + FunctionalSQLCompiler.ERR_NO_JOIN_COLUMNS_DEFINED_AND_NO_RELATION_FOUND));
+        }
+    }
+
+    @Test
+    public void testLimit() throws Exception {
+        FunctionalSQLCompiler c = new FunctionalSQLCompiler();
+
+        assertEquals("SELECT * FROM a t0 FETCH FIRST 10 ROWS ONLY", c.parse("a limit(10)"));
+        assertEquals("SELECT * FROM a t0 ORDER BY v ASC OFFSET 20 ROWS FETCH FIRST 10 ROWS ONLY", c.parse("a asc(v) limit(10, 20)"));
+        assertEquals("SELECT * FROM (SELECT * FROM a t0 FETCH FIRST 3 ROWS ONLY) t0 WHERE v = 1", c.parse("((a limit(3))) filter(v, 1)"));
+
+        c.setDialect(Dialect.POSTGRESQL);
+        assertEquals("SELECT * FROM a t0 ORDER BY v ASC LIMIT 10 OFFSET 20", c.parse("a asc(v) limit(10, 20)"));
+        assertEquals("SELECT * FROM a t0 WHERE id IN (SELECT id FROM b t0 LIMIT 5)", c.parse("a in(id, b print(id) limit(5))"));
+
+        c.setDialect(Dialect.SQLSERVER);
+        assertEquals("SELECT TOP (10) * FROM a t0", c.parse("a limit(10)"));
+        assertEquals("SELECT * FROM a t0 ORDER BY (SELECT NULL) OFFSET 20 ROWS FETCH FIRST 10 ROWS ONLY", c.parse("a limit(10, 20)"));
+
+        Template template = c.compileTemplate("a limit(:rows, ?)");
+        assertEquals("SELECT * FROM a t0 ORDER BY (SELECT NULL) OFFSET ? ROWS FETCH FIRST ? ROWS ONLY", template.getSql());
+        assertEquals(Arrays.asList(40, 20), template.bind(Collections.singletonMap("rows", 20), 40));
+
+        expectedException.expect(CompileException.class);
+        expectedException.expectMessage(createError(FunctionalSQLCompiler.ERR_LIMIT_SHOULD_BE_A_NUMBER, "-1"));
+        c.parse("a limit(-1)");
+    }
+
+    @Test
+    public void testAfter() throws Exception {
+        FunctionalSQLCompiler c = new FunctionalSQLCompiler();
+
+        assertEquals("SELECT * FROM a t0 WHERE v > 10 ORDER BY v ASC FETCH FIRST 10 ROWS ONLY", c.parse("a after(v, 10) limit(10)"));
+        assertEquals("SELECT * FROM a t0 WHERE (v, w) > (10, 'x') ORDER BY v ASC, w ASC", c.parse("a after(v, w, 10, 'x')"));
+        assertEquals("SELECT * FROM a t0 WHERE (v, w) < (10, 'x') ORDER BY v DESC, w DESC", c.parse("a desc(v, w) after(v, w, 10, 'x')"));
+        assertEquals("SELECT * FROM a t0 WHERE (v, w) < (10, 'x') ORDER BY v DESC, w DESC FETCH FIRST 10 ROWS ONLY",
+                c.parse("a after(v, w, 10, 'x') desc(v, w) limit(10)"));
+
+        /* Without after the direction is rendered once.
+        */
+        assertEquals("SELECT * FROM a t0 ORDER BY v, w DESC", c.parse("a desc(v, w)"));
+
+        c.setDialect(Dialect.ORACLE);
+        assertEquals("SELECT * FROM a t0 WHERE ( v > ? OR ( v = ? AND w > ? ) ) ORDER BY v ASC, w ASC", c.compileTemplate("a after(v, w, :v, :w)").getSql());
+        assertEquals("SELECT * FROM a t0 WHERE ( v < ? OR ( v = ? AND w < ? ) ) ORDER BY v DESC, w DESC", c.compileTemplate("a desc(v, w) after(v, w, :v, :w)").getSql());
+
+        expectedException.expect(CompileException.class);
+        expectedException.expectMessage(createError(FunctionalSQLCompiler.ERR_AFTER_DOES_NOT_MATCH_ORDER_BY, "v", "w"));
+        c.parse("a asc(w) after(v, 1)");
+    }
+
+    @Test
+    public void testFlattenSubqueries() throws Exception {
+        FunctionalSQLCompiler c = new FunctionalSQLCompiler();
+        c.addDefaultRelation("id", "id");
+        c.setFlattenSubqueries(true);
+
+        assertEquals("SELECT * FROM a t0, b t2 WHERE t0.id = t2.id AND t2.v = 1", c.parse("a join((b filter(v, 1)), id, id)"));
+        assertEquals("SELECT * FROM a t0, (SELECT * FROM b t0, c t2 WHERE t0.id = t2.id AND t2.w = 2) t1 WHERE t0.id = t1.id",
+                c.parse("a join((b join((c filter(w, 2)), id, id)), id, id)"));
+        assertEquals("SELECT * FROM a t0 WHERE id IN (SELECT id FROM b t0, c t2 WHERE t0.id = t2.id AND t2.w = 1)",
+                c.parse("a in(id, b join((c filter(w, 1)), id, id) print(id))"));
+
+        /* Not merged: a column of a nested query with more than one table (cid can be a column of b or c), unqualified
+        column with more than one table, ordering and outer join.
+        */
+        assertEquals("SELECT * FROM a t0, (SELECT * FROM b t0, c t1 WHERE t0.id = t1.id) t1 WHERE t0.id = t1.cid", c.parse("a join((b join(c)), id, cid)"));
+        assertEquals("SELECT * FROM a t0, (SELECT * FROM b t0, c t1 WHERE t0.id = t1.id AND v = 1) t1 WHERE t0.id = t1.id",
+                c.parse("a join((b join(c) filter(v, 1)), id, id)"));
+        assertEquals("SELECT * FROM a t0, (SELECT * FROM b t0 ORDER BY v ASC) t1 WHERE t0.id = t1.id", c.parse("a join((b asc(v)), id, id)"));
+        assertEquals("SELECT * FROM a t0 LEFT JOIN (SELECT * FROM b t0, c t1 WHERE t0.id = t1.id) t1 ON t0.id = t1.id", c.parse("a leftjoin((b join(c)), id, id)"));
+    }
+
+    @Test
+    public void testExists() throws Exception {
+        FunctionalSQLCompiler c = new FunctionalSQLCompiler();
+        c.addRelation("a", "id", "b", "a_id");
+        c.addRelation("b", "id", "c", "b_id");
+
+        assertEquals("SELECT * FROM a t0 WHERE EXISTS (SELECT 1 FROM b t1 WHERE t1.a_id = t0.id)", c.parse("a exists(b)"));
+        assertEquals("SELECT * FROM a t0 WHERE NOT EXISTS (SELECT 1 FROM b t1 WHERE t1.y = t0.x)", c.parse("a notexists(b, x, y)"));
+        assertEquals("SELECT * FROM a t0, b t2 WHERE EXISTS (SELECT 1 FROM b t1, c t2 WHERE t1.a_id = t0.id AND t1.id = t2.b_id AND t2.w = 2) AND t0.id = t2.a_id",
+                c.parse("a exists((b join(c) filter(c.w, 2))) join(b)"));
+        assertEquals("SELECT * FROM a t0 WHERE EXISTS (SELECT 1 FROM b t1 WHERE t1.a_id = t0.id AND EXISTS (SELECT 1 FROM c t2 WHERE t2.b_id = t1.id))",
+                c.parse("a exists((b exists(c)))"));
+
+        try {
+            c.parse("a exists(c)");
+            fail();
+        } catch (Exception e) {
+            checkException(e, FunctionalSQLCompiler.ERR_NO_JOIN_COLUMNS_DEFINED_AND_NO_RELATION_FOUND);
+        }
+    }
+
+    @Test
+    public void testInferPredicates() throws Exception {
+        FunctionalSQLCompiler c = new FunctionalSQLCompiler();
+        c.addDefaultRelation("id", "id");
+        c.setInferPredicates(true);
+
+        assertEquals("SELECT * FROM a t0, b t1 WHERE t0.id = 5 AND t0.id = t1.id AND t1.id = 5", c.parse("a join(b) filter(a.id, 5)"));
+        assertEquals("SELECT * FROM a t0, b t1, c t2 WHERE t0.id = t1.id AND t1.id = t2.id AND t2.id IN ( 5, 6 ) AND t0.id IN ( 5, 6 ) AND t1.id IN ( 5, 6 )",
+                c.parse("a join(b, join(c)) filter(c.id, 5, 6)"));
+        assertEquals("SELECT * FROM a t0 INNER JOIN b t1 ON t0.id = t1.id WHERE t0.id > 5 AND t1.id > 5", c.parse("a innerjoin(b) filter(a.id, >, 5)"));
+        assertEquals("SELECT * FROM a t0, b t1 WHERE t0.id = 5 AND t0.id = t1.id AND t1.id = 5", c.parse("a join(b) filter(a.id, 5) filter(b.id, 5)"));
+
+        /* Not inferred: the null-supplying side of an outer join, unqualified columns and not equal.
+        */
+        assertEquals("SELECT * FROM a t0 LEFT JOIN b t1 ON t0.id = t1.id WHERE t0.id = 5", c.parse("a leftjoin(b) filter(a.id, 5)"));
+        assertEquals("SELECT * FROM a t0 RIGHT JOIN b t1 ON t0.id = t1.id WHERE t1.id = 5", c.parse("a rightjoin(b) filter(b.id, 5)"));
+        assertEquals("SELECT * FROM a t0, b t1 WHERE id = 5 AND t0.id = t1.id", c.parse("a join(b) filter(id, 5)"));
+        assertEquals("SELECT * FROM a t0, b t1 WHERE t0.id != 5 AND t0.id = t1.id", c.parse("a join(b) notfilter(a.id, 5)"));
+    }
+
+    @Test
+    public void testNormalizeFilters() throws Exception {
+        FunctionalSQLCompiler c = new FunctionalSQLCompiler();
+        c.setNormalizeFilters(true);
+
+        assertEquals("SELECT * FROM a t0 WHERE v IN ( 1, 2 )", c.parse("a or(filter(v, 1), filter(v, 2))"));
+        assertEquals("SELECT * FROM a t0 WHERE ( v IN ( 1, 2, 3 ) OR w = 4 )", c.parse("a or(filter(v, 1), or(filter(v, 2, 3), filter(w, 4)))"));
+        assertEquals("SELECT * FROM a t0 WHERE v = 1 AND w = 2", c.parse("a and(filter(v, 1), and(filter(w, 2), filter(v, 1)))"));
+        assertEquals("SELECT * FROM a t0 WHERE w = 2", c.parse("a or(and(filter(v, 1), notfilter(v, 1)), filter(w, 2))"));
+
+        assertTrue(c.compile("a filter(v, 1) notfilter(v, 1)").isProvablyEmpty());
+        assertTrue(c.compile("a filter(v, 1) filter(v, 2)").isProvablyEmpty());
+        assertTrue(c.compile("a filter(v, >, 5) filter(v, <, 3)").isProvablyEmpty());
+        assertTrue(c.compile("a filter(v, 1, 2) notfilter(v, 1, 2)").isProvablyEmpty());
+        assertTrue(c.compile("a filter(v) filter(v, 1)").isProvablyEmpty());
+
+        /* Strings can be equal according to the collation, an aggregate returns a row.
+        */
+        assertFalse(c.compile("a filter(v, 'a') filter(v, 'A')").isProvablyEmpty());
+        assertFalse(c.compile("a filter(v, 1) filter(v, 1.0)").isProvablyEmpty());
+        assertFalse(c.compile("a filter(v, 1) filter(v, 2) sum(1)").isProvablyEmpty());
+        assertFalse(c.compile("a filter(v, 'x') filter(v, 'y', 'z')").isProvablyEmpty());
+
+        /* Contradiction between inferred filters.
+        */
+        c.setInferPredicates(true);
+        assertTrue(c.compile("a join(b, id, aid) filter(a.id, 5) filter(b.aid, 6)").isProvablyEmpty());
+        assertEquals("SELECT * FROM a t0, b t1 WHERE t0.id = 5 AND t0.id = t1.aid AND t1.aid = 5", c.parse("a join(b, id, aid) filter(a.id, 5) filter(b.aid, 5)"));
+    }
+
+    @Test
+    public void testSargableLike() throws Exception {
+        FunctionalSQLCompiler c = new FunctionalSQLCompiler();
+        c.setSargableLike(Collation.BINARY, '\\');
+
+        assertEquals("SELECT * FROM a t0 WHERE v < 'abd' AND v >= 'abc'", c.parse("a like(v, 'abc%')"));
+        assertEquals("SELECT * FROM a t0 WHERE v = 'abc'", c.parse("a like(v, 'abc')"));
+        assertEquals("SELECT * FROM a t0 WHERE v < 'abd' AND v >= 'abc' AND v LIKE 'abc%d'", c.parse("a like(v, 'abc%d')"));
+        assertEquals("SELECT * FROM a t0 WHERE v = 'a_b'", c.parse("a like(v, 'a\\_b')"));
+        assertEquals("SELECT * FROM a t0 WHERE v LIKE '%abc'", c.parse("a like(v, '%abc')"));
+        assertEquals("SELECT * FROM a t0 WHERE v LIKE ?", c.parse("a like(v, ?)"));
+
+        c.setSargableLike(Collation.LINGUISTIC, null);
+
+        assertEquals("SELECT * FROM a t0 WHERE v >= 'abc' AND v LIKE 'abc%'", c.parse("a like(v, 'abc%')"));
+        assertEquals("SELECT * FROM a t0 WHERE v = 'abc' AND v LIKE 'abc'", c.parse("a like(v, 'abc')"));
+    }
+
     private String createError(String format, Object... args) {
         return String.format(format, args);
     }